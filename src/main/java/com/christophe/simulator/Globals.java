@@ -0,0 +1,78 @@
+package com.christophe.simulator;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Simulation globals (from Globals.xlsx). A map that reports actual mutations, so a run can
+ * treat the values as frozen constants and re-freeze them only when one actually changes.
+ * Entries are changed through put/remove/clear (the entry view is read-only).
+ */
+public class Globals extends AbstractMap<String, Object> {
+    private final Map<String, Object> values = new HashMap<>();
+    private Runnable changeListener;
+
+    void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        boolean present = values.containsKey(key);
+        Object previous = values.put(key, value);
+        if (!present || !Objects.equals(previous, value)) {  // Rewriting the same value keeps constants frozen
+            changed();
+        }
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (!values.containsKey(key)) {
+            return null;
+        }
+        Object previous = values.remove(key);
+        changed();
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (values.isEmpty()) {
+            return;
+        }
+        values.clear();
+        changed();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return Collections.unmodifiableMap(values).entrySet();
+    }
+
+    private void changed() {
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
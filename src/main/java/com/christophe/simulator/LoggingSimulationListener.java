@@ -0,0 +1,49 @@
+package com.christophe.simulator;
+
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.entities.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional listener reproducing the engine's per-event log output (debug level, entity
+ * destruction at info). Register it only when the log is wanted; it is not installed by default.
+ */
+public class LoggingSimulationListener implements SimulationListener {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingSimulationListener.class);
+
+    @Override
+    public void onTickStarted(long tick, int queueSize) {
+        logger.debug("Entering tick {} with queue size {}", tick, queueSize);
+    }
+
+    @Override
+    public void onEventEnqueued(Event event) {
+        logger.debug("Enqueued event {} at tick {}", event.getType(), event.getTime());
+    }
+
+    @Override
+    public void onEventApplied(Event event, long tick) {
+        logger.debug("Applied event {} at tick {}", event.getType(), tick);
+    }
+
+    @Override
+    public void onActionHandled(BaseEntity entity, String actionName, Event event) {
+        logger.debug("Handled action {} on {} for event {}", actionName, entity.getId(), event.getType());
+    }
+
+    @Override
+    public void onStateTransition(BaseEntity entity, String fromState, String toState, long tick) {
+        logger.debug("Transitioned {} from {} to {} at tick {}", entity.getId(), fromState, toState, tick);
+    }
+
+    @Override
+    public void onEntityAdded(BaseEntity entity) {
+        logger.debug("Added entity {} ({})", entity.getId(), entity.getType());
+    }
+
+    @Override
+    public void onEntityDestroyed(BaseEntity entity) {
+        logger.info("Destroyed entity {}", entity.getId());
+    }
+}
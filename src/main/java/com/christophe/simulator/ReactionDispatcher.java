@@ -0,0 +1,284 @@
+package com.christophe.simulator;
+
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.entities.Event;
+import com.christophe.simulator.utils.EvaluationScope;
+import com.christophe.simulator.utils.ExpressionAccessAnalyzer;
+import com.christophe.simulator.utils.ExpressionEvaluator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers events to the entities whose Actions trigger on them (handleActions).
+ * With parallelism above 1, reactions of consecutive same-tick events are batched and run on a
+ * worker pool with one lane per reacting entity, so reactions on disjoint entities run in
+ * parallel while each entity keeps its serial order. Reactions whose expressions may reach
+ * beyond their own entity (ExpressionAccessAnalyzer) flush the batch and run alone. Side effects
+ * that leave the entity (aggregate updates, listener callbacks) are buffered per lane and replayed
+ * on the engine thread in serial dispatch order once the batch is done, so the outcome matches
+ * serial dispatch; replayed callbacks see attribute values as of the end of the batch.
+ */
+class ReactionDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ReactionDispatcher.class);
+
+    private record Reactor(BaseEntity entity, ExpressionAccessAnalyzer.AccessSet access) {
+    }
+
+    private record Reaction(Reactor reactor, Event event) {
+    }
+
+    private record Effect(int sequence, Runnable action) {
+    }
+
+    /** Reactions of one entity in a batch, with the side effects they deferred. */
+    private static final class Lane {
+        private final List<Event> events = new ArrayList<>();
+        private final List<Integer> sequences = new ArrayList<>();  // Position of each event's reaction in the batch
+        private final List<Effect> effects = new ArrayList<>();
+        private int sequence;  // Reaction currently running
+    }
+
+    private static final ThreadLocal<Lane> currentLane = new ThreadLocal<>();
+
+    private final Simulator simulator;
+    private final Map<String, Map<String, Reactor>> reactorsByTrigger = new HashMap<>();  // Trigger to entity ID to reactor
+    private final List<Reaction> pending = new ArrayList<>();
+    private final Set<BaseEntity> staleReactors = new LinkedHashSet<>();  // Actions changed during dispatch
+    private boolean dispatching;
+    private ExecutorService workers;
+    private int parallelism = 1;
+
+    ReactionDispatcher(Simulator simulator) {
+        this.simulator = simulator;
+    }
+
+    /**
+     * Indexes an entity's event-triggered Actions (tick-triggered ones are smart events).
+     * @param entity the entity joining the simulation
+     */
+    @SuppressWarnings("unchecked")
+    void register(BaseEntity entity) {
+        List<Map<String, Object>> actions = (List<Map<String, Object>>) entity.getAttribute("actions");
+        if (actions == null) {
+            return;
+        }
+        Map<String, ExpressionAccessAnalyzer.AccessSet> accessByTrigger = new LinkedHashMap<>();
+        for (Map<String, Object> action : actions) {
+            String trigger = (String) action.get("trigger");
+            if (trigger == null || "tick".equals(trigger)) {
+                continue;
+            }
+            ExpressionAccessAnalyzer.AccessSet access = ExpressionAccessAnalyzer.analyze((String) action.get("condition"))
+                    .union(ExpressionAccessAnalyzer.analyze((String) action.get("effect")));
+            accessByTrigger.merge(trigger, access, ExpressionAccessAnalyzer.AccessSet::union);
+        }
+        accessByTrigger.forEach((trigger, access) -> reactorsByTrigger
+                .computeIfAbsent(trigger, t -> new LinkedHashMap<>())
+                .put(entity.getId(), new Reactor(entity, access)));
+    }
+
+    void unregister(BaseEntity entity) {
+        for (Map<String, Reactor> reactors : reactorsByTrigger.values()) {
+            reactors.remove(entity.getId());
+        }
+    }
+
+    /**
+     * Re-indexes an entity whose actions attribute changed after it joined. During dispatch the
+     * index is being iterated, so the entity is re-indexed once the event's reactions are done.
+     * @param entity the entity whose actions changed
+     */
+    void reindex(BaseEntity entity) {
+        if (dispatching) {
+            staleReactors.add(entity);
+            return;
+        }
+        if (simulator.entities.get(entity.getId()) != entity) {
+            return;  // Destroyed meanwhile
+        }
+        unregister(entity);
+        register(entity);
+    }
+
+    /**
+     * Runs or batches the reactions to an event.
+     * @param event the applied event
+     */
+    void dispatch(Event event) {
+        Map<String, Reactor> reactors = reactorsByTrigger.get(event.getType());
+        if (reactors == null || reactors.isEmpty()) {
+            return;
+        }
+        dispatching = true;
+        try {
+            for (Reactor reactor : reactors.values()) {
+                if (parallelism <= 1) {
+                    react(reactor.entity(), event);
+                } else if (reactor.access().global()) {
+                    flush();  // Everything before it must be visible, and it may touch anything
+                    react(reactor.entity(), event);
+                } else {
+                    pending.add(new Reaction(reactor, event));
+                }
+            }
+        } finally {
+            dispatching = false;
+        }
+        if (!staleReactors.isEmpty()) {
+            List<BaseEntity> stale = new ArrayList<>(staleReactors);
+            staleReactors.clear();
+            stale.forEach(this::reindex);
+        }
+    }
+
+    Set<String> getTriggers() {
+        Set<String> triggers = new TreeSet<>();
+        reactorsByTrigger.forEach((trigger, reactors) -> {
+            if (!reactors.isEmpty()) {
+                triggers.add(trigger);
+            }
+        });
+        return triggers;
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Runs all batched reactions: one lane per entity, in parallel when there are several lanes.
+     */
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<BaseEntity, Lane> lanes = new LinkedHashMap<>();
+        for (int i = 0; i < pending.size(); i++) {
+            Reaction reaction = pending.get(i);
+            Lane lane = lanes.computeIfAbsent(reaction.reactor().entity(), e -> new Lane());
+            lane.events.add(reaction.event());
+            lane.sequences.add(i);
+        }
+        pending.clear();
+        if (lanes.size() == 1) {  // Already in serial order, run it here without deferring
+            lanes.forEach((entity, lane) -> lane.events.forEach(event -> react(entity, event)));
+            return;
+        }
+        EvaluationScope scope = ExpressionEvaluator.currentScope();  // Workers evaluate as the engine thread does
+        List<Callable<Void>> tasks = new ArrayList<>(lanes.size());
+        lanes.forEach((entity, lane) -> tasks.add(() -> {
+            EvaluationScope previous = ExpressionEvaluator.enter(scope);
+            try {
+                runLane(entity, lane);
+            } finally {
+                ExpressionEvaluator.enter(previous);
+            }
+            return null;
+        }));
+        try {
+            for (Future<Void> done : workers.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while dispatching reactions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Reaction lane failed", e.getCause());
+        }
+        List<Effect> effects = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            effects.addAll(lane.effects);
+        }
+        effects.sort(Comparator.comparingInt(Effect::sequence));  // Stable: keeps each reaction's own order
+        for (Effect effect : effects) {
+            effect.action().run();
+        }
+    }
+
+    private void runLane(BaseEntity entity, Lane lane) {
+        currentLane.set(lane);
+        try {
+            for (int i = 0; i < lane.events.size(); i++) {
+                lane.sequence = lane.sequences.get(i);
+                react(entity, lane.events.get(i));
+            }
+        } finally {
+            currentLane.remove();
+        }
+    }
+
+    /**
+     * Tells whether the calling thread is running a parallel reaction lane, whose side effects
+     * must go through defer.
+     * @return true on a reaction worker inside a lane
+     */
+    boolean inLane() {
+        return parallelism > 1 && currentLane.get() != null;
+    }
+
+    /**
+     * Buffers a side effect of the running lane reaction; flush replays it on the engine thread
+     * in serial dispatch order.
+     * @param effect the side effect
+     */
+    void defer(Runnable effect) {
+        Lane lane = currentLane.get();
+        lane.effects.add(new Effect(lane.sequence, effect));
+    }
+
+    private void react(BaseEntity entity, Event event) {
+        try {
+            entity.handleActions(event, simulator);
+        } catch (Exception ex) {
+            logger.error("Error handling {} on {}", event.getType(), entity.getId(), ex);
+        }
+    }
+
+    /**
+     * Sets the number of reaction workers (1 = serial, no pool).
+     * @param workerCount number of worker threads
+     */
+    void setParallelism(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + workerCount);
+        }
+        flush();
+        shutdown();
+        parallelism = workerCount;
+        if (workerCount > 1) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(workerCount, r -> {
+                Thread t = new Thread(r, "simulator-reaction-" + threadIndex.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.christophe.simulator;
+
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.entities.Event;
+
+/**
+ * Typed callbacks for simulation activity, registered via Simulator.addListener.
+ * All methods default to no-ops so listeners override only what they need. Callbacks run
+ * synchronously on the engine thread and must not retain the context of the call; with no
+ * listeners registered the engine skips dispatch entirely.
+ */
+public interface SimulationListener {
+
+    default void onRunStarted(long maxTicks) {
+    }
+
+    default void onRunCompleted(long tick) {
+    }
+
+    /**
+     * Called at the start of each processed tick.
+     * @param tick the tick being processed
+     * @param queueSize pending events at tick start
+     */
+    default void onTickStarted(long tick, int queueSize) {
+    }
+
+    /**
+     * Called after the derived-attribute and state phases of a tick (again if the tick is
+     * re-processed for same-tick events).
+     * @param tick the processed tick
+     */
+    default void onTickCompleted(long tick) {
+    }
+
+    default void onEventEnqueued(Event event) {
+    }
+
+    /**
+     * Called after an event was applied without error.
+     * @param event the event
+     * @param tick the current tick
+     */
+    default void onEventApplied(Event event, long tick) {
+    }
+
+    /**
+     * Called when an entity reacted to an event through one of its Actions. With
+     * Simulator.setParallelism above 1, reactions that ran in parallel are reported after their
+     * batch, in serial dispatch order.
+     * @param entity the reacting entity
+     * @param actionName the action's name (may be null)
+     * @param event the triggering event
+     */
+    default void onActionHandled(BaseEntity entity, String actionName, Event event) {
+    }
+
+    /**
+     * Called when an entity enters a state, including its initial state.
+     * @param entity the entity
+     * @param fromState previous state, or null for the initial state
+     * @param toState the new state
+     * @param tick the current tick
+     */
+    default void onStateTransition(BaseEntity entity, String fromState, String toState, long tick) {
+    }
+
+    /**
+     * Called when an attribute of an entity in the simulation is set. Like onActionHandled, writes
+     * from parallel reactions are reported after their batch, so the entity already holds the
+     * batch's final value.
+     * @param entity the entity
+     * @param attributeName the attribute that was set
+     */
+    default void onAttributeChanged(BaseEntity entity, String attributeName) {
+    }
+
+    default void onEntityAdded(BaseEntity entity) {
+    }
+
+    default void onEntityDestroyed(BaseEntity entity) {
+    }
+}
@@ -1,57 +1,417 @@
 package com.christophe.simulator;
 
+import com.christophe.simulator.aggregates.AggregateDefinition;
+import com.christophe.simulator.aggregates.AggregateRegistry;
+import com.christophe.simulator.aggregates.AggregateView;
 import com.christophe.simulator.entities.BaseEntity;
-import com.christophe.simulator.entities.BaseEvent;
+import com.christophe.simulator.entities.CompactEvent;
+import com.christophe.simulator.entities.ContainmentIndex;
 import com.christophe.simulator.entities.Event;
+import com.christophe.simulator.entities.EventPool;
+import com.christophe.simulator.metrics.EngineMetrics;
+import com.christophe.simulator.sampling.AttributeSampler;
+import com.christophe.simulator.sampling.SamplerConfig;
+import com.christophe.simulator.store.OffHeapEventStore;
+import com.christophe.simulator.stream.StreamingRun;
+import com.christophe.simulator.utils.ConstantTable;
+import com.christophe.simulator.utils.EvaluationScope;
 import com.christophe.simulator.utils.ExpressionEvaluator;
+import com.christophe.simulator.utils.ExpressionProfiler;
+import com.christophe.simulator.utils.RandomService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
 
-public class Simulator {
+public class Simulator implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(Simulator.class);
 
     private final PriorityQueue<Event> eventQueue = new PriorityQueue<>();
     public final Map<String, BaseEntity> entities = new HashMap<>(); // ID to entity
+    private final EngineMetrics metrics = new EngineMetrics();  // Always on; see getMetrics()
+    private final EventPool eventPool = new EventPool();  // Recycled notification events
+    private final ReactionDispatcher reactions = new ReactionDispatcher(this);  // Notification -> handleActions
+    private final List<CompactEvent> deferredRelease = new ArrayList<>();  // Pooled events awaiting batched reactions
+    private final Consumer<CompactEvent> requeue = eventQueue::add;  // Sink for events drained from the store
+    private OffHeapEventStore eventStore;  // Optional, see enableOffHeapEventStore
+    private final ContainmentIndex containment = new ContainmentIndex(id -> {  // Reverse contained-in links
+        BaseEntity entity = entities.get(id);
+        return entity == null ? null : entity.getType();
+    });
+    private final AggregateRegistry aggregates = new AggregateRegistry();  // Rollups bound as "aggregates"
     private long currentTick = 0;
+    private final EvaluationScope evaluationScope = new EvaluationScope(metrics);  // Constants and hooks, entered by run()
+    private ExpressionProfiler expressionProfiler;  // Opt-in, see enableExpressionProfiling
+    private Path expressionReportFile;
+    private RandomService random = new RandomService(RandomService.DEFAULT_SEED);  // See setRandomSeed
+    private SimulationListener[] listeners = new SimulationListener[0];  // Copy-on-write, empty = no dispatch
+    private TickBarrier tickBarrier;  // Lockstep with other simulators (sharded runs), null when alone
 
-    // Stub globals (from Globals.xlsx later)
-    public final Map<String, Object> globals = new HashMap<>();
+    // Stub globals (from Globals.xlsx later); frozen as expression constants during run()
+    public final Globals globals = new Globals();
+    private boolean globalsFrozen;
 
     public void addEntity(BaseEntity entity) {
         entities.put(entity.getId(), entity);
+        entity.attach(this);
+        reactions.register(entity);
+        aggregates.entityAdded(entity);
+        metrics.entityAdded(entity.getType());
+        for (SimulationListener l : listeners) {
+            l.onEntityAdded(entity);
+        }
     }
 
     public void enqueueEvent(Event event) {
+        for (SimulationListener l : listeners) {
+            l.onEventEnqueued(event);
+        }
+        if (eventStore != null && event.getTime() > currentTick && event instanceof CompactEvent compact) {
+            eventStore.add(compact);  // Future notification: keep it off-heap until due
+            eventPool.release(compact);
+            return;
+        }
         eventQueue.add(event);
-        logger.debug("Enqueued event {} at tick {}", event.getType(), event.getTime());
+    }
+
+    /**
+     * Pre-schedules a notification at a future tick (e.g., recurring events over a long horizon).
+     * @param tick when the notification fires
+     * @param eventType notification type
+     * @param sourceEntityId notifying entity ID, or null
+     */
+    public void scheduleNotification(long tick, String eventType, String sourceEntityId) {
+        enqueueEvent(eventPool.acquire(tick, 1, eventType, sourceEntityId));
+    }
+
+    /**
+     * Keeps future CompactEvents in an off-heap store instead of the heap queue: buckets of
+     * bucketTicks ticks, windowBuckets of them in direct memory, later ones spilled to spillDir.
+     * The caller owns the returned store and closes it when done with the simulator.
+     * @param spillDir directory for spill files
+     * @param bucketTicks ticks per bucket
+     * @param windowBuckets in-memory buckets ahead of the current tick
+     * @return the store
+     * @throws IOException if the spill directory cannot be created
+     */
+    public OffHeapEventStore enableOffHeapEventStore(Path spillDir, long bucketTicks, int windowBuckets) throws IOException {
+        if (eventStore != null) {
+            throw new IllegalStateException("Off-heap event store already enabled");
+        }
+        eventStore = new OffHeapEventStore(spillDir, bucketTicks, windowBuckets);
+        return eventStore;
+    }
+
+    /**
+     * @return pending events, heap queue plus off-heap store
+     */
+    public long getPendingEventCount() {
+        return eventQueue.size() + (eventStore == null ? 0 : eventStore.size());
+    }
+
+    /**
+     * Enqueues a notification at the current tick using a pooled CompactEvent (no per-event allocation
+     * in steady state). The event is recycled after processing.
+     * @param eventType notification type, e.g. "Cow.Maturity"
+     * @param sourceEntityId ID of the notifying entity (bound as notified_entity_id in reactions)
+     */
+    public void enqueueNotification(String eventType, String sourceEntityId) {
+        enqueueEvent(eventPool.acquire(currentTick, 1, eventType, sourceEntityId));
+    }
+
+    public EventPool getEventPool() {
+        return eventPool;
     }
 
     public void destroyEntity(String id) {
         BaseEntity entity = entities.remove(id);
         if (entity != null) {
-            logger.info("Destroyed entity {}", id);
+            reactions.unregister(entity);
+            aggregates.entityRemoved(entity);
+            containment.removeMember(id);  // Drop from queues/containers holding it
+            eventPool.retireEntity(id);  // Its ID slot is recycled once pending notifications are done
+            entity.detach();  // Release anything it contained
+            metrics.entityRemoved(entity.getType());
+            random.release(id);
+            for (SimulationListener l : listeners) {
+                l.onEntityDestroyed(entity);
+            }
             // Stub: handle outputs (from CaptureDeletion tab)
         }
     }
 
+    /**
+     * Subscribes a listener to simulation activity (see LoggingSimulationListener for the log output).
+     * @param listener the listener to add
+     */
+    public synchronized void addListener(SimulationListener listener) {
+        SimulationListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void removeListener(SimulationListener listener) {
+        listeners = Arrays.stream(listeners).filter(l -> l != listener).toArray(SimulationListener[]::new);
+    }
+
+    /**
+     * Notifies listeners of a state change (called by entities from updateStates).
+     * @param entity the entity changing state
+     * @param fromState previous state, or null for the initial state
+     * @param toState the new state
+     */
+    public void fireStateTransition(BaseEntity entity, String fromState, String toState) {
+        for (SimulationListener l : listeners) {
+            l.onStateTransition(entity, fromState, toState, currentTick);
+        }
+    }
+
+    /**
+     * Propagates an attribute write to aggregate views and listeners (called by BaseEntity.setAttribute).
+     * Writes from parallel reaction lanes are replayed later on the engine thread.
+     * @param entity the entity
+     * @param attributeName the attribute that was set
+     */
+    public void fireAttributeChanged(BaseEntity entity, String attributeName) {
+        if (reactions.inLane()) {
+            reactions.defer(() -> fireAttributeChanged(entity, attributeName));
+            return;
+        }
+        aggregates.attributeChanged(entity, attributeName);
+        if ("actions".equals(attributeName)) {
+            reactions.reindex(entity);
+        }
+        for (SimulationListener l : listeners) {
+            l.onAttributeChanged(entity, attributeName);
+        }
+    }
+
+    /**
+     * Re-reads every attribute of an entity after a bulk replace (called by BaseEntity.setAttributes).
+     * @param entity the entity
+     */
+    public void fireAttributesReplaced(BaseEntity entity) {
+        aggregates.entityAdded(entity);  // Re-read every contribution
+        reactions.reindex(entity);
+    }
+
+    /**
+     * Notifies listeners that an entity reacted to an event (called by entities from handleActions).
+     * @param entity the reacting entity
+     * @param actionName the action's name
+     * @param event the triggering event
+     */
+    public void fireActionHandled(BaseEntity entity, String actionName, Event event) {
+        if (reactions.inLane()) {
+            reactions.defer(() -> fireActionHandled(entity, actionName, event));
+            return;
+        }
+        for (SimulationListener l : listeners) {
+            l.onActionHandled(entity, actionName, event);
+        }
+    }
+
+    /**
+     * Runs reactions to same-tick notifications on a pool of worker threads. Reactions on
+     * different entities run in parallel; those that may reach other entities or the simulator
+     * (per static analysis of their expressions) run alone, and aggregate updates and listener
+     * callbacks from parallel reactions are replayed on the engine thread in serial order.
+     * Set to 1 (the default) for fully serial dispatch.
+     * @param workers number of reaction worker threads
+     */
+    public void setParallelism(int workers) {
+        reactions.setParallelism(workers);
+    }
+
+    public int getParallelism() {
+        return reactions.getParallelism();
+    }
+
+    /**
+     * Stops the reaction worker threads; the simulator can still run, with serial dispatch.
+     * An off-heap event store stays open (its caller owns it).
+     */
+    @Override
+    public void close() {
+        reactions.setParallelism(1);
+    }
+
+    /**
+     * Makes run() agree on every next tick with other simulators (see shard.ShardWorker).
+     * @param barrier the barrier, or null to run alone
+     */
+    public void setTickBarrier(TickBarrier barrier) {
+        this.tickBarrier = barrier;
+    }
+
+    /**
+     * Gets the event types that entities in this simulator react to through Actions.
+     * @return snapshot of the trigger names
+     */
+    public Set<String> getReactionTriggers() {
+        return reactions.getTriggers();
+    }
+
+    /**
+     * Records attributes of an entity type over time into a columnar file (see SamplerConfig).
+     * The caller owns the returned sampler and closes it when done with the simulator.
+     * @param config what to sample and how often
+     * @param file output file
+     * @return the sampler, already receiving callbacks
+     * @throws IOException if the file cannot be created
+     */
+    public AttributeSampler addSampler(SamplerConfig config, Path file) throws IOException {
+        return AttributeSampler.attach(config, this, file);
+    }
+
+    /**
+     * Prepares a run that publishes per-tick deltas to Flow subscribers on its own thread, with
+     * pause, resume and stop (see StreamingRun). Subscribe, then call start().
+     * @param maxTicks last tick to run
+     * @param mode PACED to wait for slow subscribers, CONFLATE to merge their backlog
+     * @return the unstarted run
+     */
+    public StreamingRun stream(long maxTicks, StreamingRun.Mode mode) {
+        return new StreamingRun(this, maxTicks, mode);
+    }
+
+    /**
+     * Maintains an aggregate over an entity type (see AggregateDefinition), readable from
+     * expressions as aggregates.get(name) in constant time.
+     * @param definition the aggregate
+     * @return the view, seeded from the current entities
+     */
+    public AggregateView defineAggregate(AggregateDefinition definition) {
+        return aggregates.define(definition, entities.values());
+    }
+
+    public AggregateRegistry getAggregates() {
+        return aggregates;
+    }
+
+    public ContainmentIndex getContainment() {
+        return containment;
+    }
+
+    /**
+     * Gets the engine metrics (per-phase latencies, event/expression counters, queue depth,
+     * entities by type). Use snapshot() or registerMBean() to expose them.
+     * @return the live metrics
+     */
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Profiles every expression evaluated during run() and writes a ranked report when it ends.
+     * @param reportFile where to write the report, or null to only collect (see getExpressionProfiler)
+     * @return the profiler collecting the statistics
+     */
+    public ExpressionProfiler enableExpressionProfiling(Path reportFile) {
+        if (expressionProfiler == null) {
+            expressionProfiler = new ExpressionProfiler();
+            evaluationScope.setProfiler(expressionProfiler);
+        }
+        expressionReportFile = reportFile;
+        return expressionProfiler;
+    }
+
+    public ExpressionProfiler getExpressionProfiler() {
+        return expressionProfiler;
+    }
+
+    /**
+     * Seeds the run's random streams; call before run() for a reproducible stochastic run.
+     * Existing per-entity streams are discarded and re-derived from the new seed.
+     * @param seed the run seed
+     */
+    public void setRandomSeed(long seed) {
+        random = new RandomService(seed);
+    }
+
+    /**
+     * Gets the random service (per-entity and per-worker streams), reachable from JS as
+     * simulator.getRandom(); entity contexts bind their own stream as $random.
+     * @return the current random service
+     */
+    public RandomService getRandom() {
+        return random;
+    }
+
     public long getCurrentTick() {
         return currentTick;
     }
 
     public void run(long maxTicks) {
         logger.info("Starting simulation up to tick: {}", maxTicks);
+        evaluationScope.setConstants(ConstantTable.freeze(globals));
+        EvaluationScope previousScope = ExpressionEvaluator.enter(evaluationScope);
+        globals.setChangeListener(this::refreezeGlobals);
+        globalsFrozen = true;
+        for (SimulationListener l : listeners) {
+            l.onRunStarted(maxTicks);
+        }
+        try {
+            runLoop(maxTicks);
+        } finally {
+            globalsFrozen = false;
+            globals.setChangeListener(null);
+            evaluationScope.setConstants(null);
+            ExpressionEvaluator.enter(previousScope);
+        }
+        for (SimulationListener l : listeners) {
+            l.onRunCompleted(currentTick);
+        }
+        logger.info("Simulation completed at tick: {}", currentTick);
+        writeExpressionReport();
+    }
+
+    // A global was explicitly mutated mid-run: drop specialized expressions and bind the new values
+    private void refreezeGlobals() {
+        logger.debug("Globals changed at tick {}, re-specializing expressions", currentTick);
+        evaluationScope.setConstants(ConstantTable.freeze(globals));
+    }
+
+    private void writeExpressionReport() {
+        if (expressionProfiler == null || expressionReportFile == null) {
+            return;
+        }
+        try {
+            expressionProfiler.writeReport(expressionReportFile);
+            logger.info("Wrote expression profile to {}", expressionReportFile);
+        } catch (IOException ex) {
+            logger.warn("Failed to write expression profile to {}", expressionReportFile, ex);
+        }
+    }
+
+    private void runLoop(long maxTicks) {
         int loopCount = 0; // Safety to detect infinite loop
         while (currentTick <= maxTicks) {
-            logger.debug("Entering tick {} (loop iteration {}) with queue size {}", currentTick, loopCount++, eventQueue.size());
+            loopCount++;
+            if (eventStore != null) {
+                eventStore.drainUpTo(currentTick, eventPool, requeue);  // Due buckets back on heap
+            }
+            for (SimulationListener l : listeners) {
+                l.onTickStarted(currentTick, eventQueue.size());
+            }
+            metrics.recordTick();
+            metrics.recordQueueDepth(eventQueue.size());
 
             // Check smart events first, once per tick (adds events at current or future ticks)
+            long phaseStart = System.nanoTime();
             checkSmartEvents();
+            metrics.recordPhase(EngineMetrics.Phase.SMART_EVENTS, System.nanoTime() - phaseStart);
 
+            phaseStart = System.nanoTime();
             boolean hasMoreToProcess;
             do {
                 hasMoreToProcess = false;
@@ -59,22 +419,40 @@ public class Simulator {
                 // Process all events at or before currentTick
                 while (!eventQueue.isEmpty() && eventQueue.peek().getTime() <= currentTick) {
                     Event e = eventQueue.poll();
-                    logger.debug("Polled event {} at tick {}", e.getType(), e.getTime());
-                    Map<String, Object> context = buildContext(e);
+                    Map<String, Object> context = null;  // Pooled notifications are passive and ignore it
+                    if (!(e instanceof CompactEvent)) {
+                        flushReactions();  // Its expressions may read what pending reactions write
+                        context = buildContext(e);
+                    }
                     try {
                         e.apply(this, context);
+                        metrics.recordEventApplied(e.getType());
+                        for (SimulationListener l : listeners) {
+                            l.onEventApplied(e, currentTick);
+                        }
                     } catch (Exception ex) {
                         logger.error("Error applying event {}", e.getType(), ex);
                     }
+                    reactions.dispatch(e);  // Broadcast to entities whose Actions trigger on it
+                    if (e instanceof CompactEvent compact) {
+                        // Done with it once reactions ran; listeners must not retain events
+                        if (reactions.hasPending()) {
+                            deferredRelease.add(compact);
+                        } else {
+                            eventPool.release(compact);
+                        }
+                    }
                     hasMoreToProcess = true; // Re-loop if applied (may have added more at same tick)
                 }
+                flushReactions();
             } while (hasMoreToProcess);
+            metrics.recordPhase(EngineMetrics.Phase.EVENTS, System.nanoTime() - phaseStart);
 
             // Create tick-specific context (globals + current_tick)
-            Map<String, Object> tickContext = new HashMap<>(globals);
-            tickContext.put("current_tick", getCurrentTick());
+            Map<String, Object> tickContext = newEvaluationContext();
 
             // Update derived attributes after all processing in the tick
+            phaseStart = System.nanoTime();
             for (BaseEntity entity : entities.values()) {
                 try {
                     entity.updateDerivedAttributes(tickContext);
@@ -83,7 +461,10 @@ public class Simulator {
                 }
             }
 
+            metrics.recordPhase(EngineMetrics.Phase.DERIVED, System.nanoTime() - phaseStart);
+
             // Update states after derived (transitions may depend on updated attrs)
+            phaseStart = System.nanoTime();
             for (BaseEntity entity : entities.values()) {
                 try {
                     entity.updateStates(tickContext, this);
@@ -91,26 +472,52 @@ public class Simulator {
                     logger.error("Error updating states for {}", entity.getId(), ex);
                 }
             }
+            metrics.recordPhase(EngineMetrics.Phase.STATES, System.nanoTime() - phaseStart);
+            for (SimulationListener l : listeners) {
+                l.onTickCompleted(currentTick);
+            }
 
             if (loopCount > 1000) {
                 throw new RuntimeException("Possible infinite loop detected in run() at tick " + currentTick);
             }
 
             // Advance to next tick: min of next event time or +1, capped at maxTicks + 1
-            if (eventQueue.isEmpty()) {
-                currentTick++;
+            long nextEventTime = eventQueue.isEmpty() ? Long.MAX_VALUE : eventQueue.peek().getTime();
+            if (eventStore != null) {
+                nextEventTime = Math.min(nextEventTime, eventStore.nextEventTime());
+            }
+            long proposedNext = nextEventTime == Long.MAX_VALUE ? Long.MAX_VALUE : Math.min(nextEventTime, maxTicks + 1);
+            if (tickBarrier != null) {
+                currentTick = tickBarrier.await(currentTick, proposedNext);  // Idle proposes MAX_VALUE, see TickBarrier
             } else {
-                long nextEventTime = eventQueue.peek().getTime();
-                currentTick = Math.min(nextEventTime, maxTicks + 1);
+                currentTick = proposedNext == Long.MAX_VALUE ? currentTick + 1 : proposedNext;
             }
-            logger.debug("Advanced to tick {}", currentTick);
         }
-        logger.info("Simulation completed at tick: {}", currentTick);
+    }
+
+    private void flushReactions() {
+        reactions.flush();
+        for (CompactEvent event : deferredRelease) {
+            eventPool.release(event);
+        }
+        deferredRelease.clear();
+    }
+
+    /**
+     * Creates an evaluation context with current_tick and aggregates. Globals are only copied in
+     * outside run(); during a run they are bound as constants by the evaluator.
+     * @return a fresh mutable context
+     */
+    public Map<String, Object> newEvaluationContext() {
+        Map<String, Object> context = globalsFrozen ? new HashMap<>() : new HashMap<>(globals);
+        context.put("current_tick", currentTick);
+        context.put("aggregates", aggregates);
+        return context;
     }
 
     private Map<String, Object> buildContext(Event event) {
-        Map<String, Object> context = new HashMap<>(globals);
-        context.put("current_tick", getCurrentTick());
+        Map<String, Object> context = newEvaluationContext();
+        context.put("random", random.global());
 
         // bind every entity by its type (lower-case) so JS can use "payroll", "farmer", …
         for (BaseEntity ent : entities.values()) {
@@ -131,52 +538,73 @@ public class Simulator {
             }
         }
 
-        logger.debug("Context keys for {}: {}", event.getType(), context.keySet());
         return context;
     }
 
     private boolean checkSmartEvents() {
-        logger.debug("Checking smart events at tick {}", currentTick);
         boolean addedAny = false;
-        Map<String, Object> tickContext = new HashMap<>(globals);
-        tickContext.put("current_tick", currentTick);
-        for (BaseEntity entity : entities.values()) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> actions = (List<Map<String, Object>>) entity.getAttribute("actions");
-            if (actions == null) {
+        Map<String, Object> tickContext = newEvaluationContext();
+        // Snapshot: effects may destroy entities (e.g., ProcessQueue)
+        for (BaseEntity entity : new ArrayList<>(entities.values())) {
+            if (entities.get(entity.getId()) != entity) {
+                continue;  // Destroyed (or replaced) by an earlier effect this tick
+            }
+            addedAny |= checkSmartEvents(entity, tickContext);
+        }
+        return addedAny;
+    }
+
+    private boolean checkSmartEvents(BaseEntity entity, Map<String, Object> tickContext) {
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> actions = (List<Map<String, Object>>) entity.getAttribute("actions");
+        if (actions == null) {
+            return false;
+        }
+        boolean addedAny = false;
+        for (Map<String, Object> action : actions) {
+            String trigger = (String) action.get("trigger");
+            if (!"tick".equals(trigger)) {
+                continue;
+            }
+            // Recurring actions wait cycle_length ticks since last_triggered (default: start_tick, else 0)
+            Long cycleLength = (Long) action.get("cycle_length");
+            if (cycleLength != null && currentTick - lastTriggered(entity) < cycleLength) {
                 continue;
             }
-            for (Map<String, Object> action : actions) {
-                String trigger = (String) action.get("trigger");
-                if (!"tick".equals(trigger)) {
+            String conditionExpr = (String) action.get("condition");
+            if (conditionExpr != null) {
+                Map<String, Object> evalContext = new HashMap<>(tickContext);
+                evalContext.putAll(entity.getAttributes());
+                evalContext.put("attr", entity);  // Bind for attr.getAttribute calls
+                entity.bindRandom(evalContext);
+                Object cond = ExpressionEvaluator.evaluate(conditionExpr, evalContext, entity.getExpressionOrigin("Actions"));
+                if (!(cond instanceof Boolean) || !(Boolean) cond) {
                     continue;
                 }
-                String conditionExpr = (String) action.get("condition");
-                if (conditionExpr != null) {
-                    Map<String, Object> evalContext = new HashMap<>(tickContext);
-                    evalContext.putAll(entity.getAttributes());
-                    evalContext.put("attr", entity);  // Bind for attr.getAttribute calls
-                    Object cond = ExpressionEvaluator.evaluate(conditionExpr, evalContext);
-                    if (!(cond instanceof Boolean) || !(Boolean) cond) {
-                        continue;
-                    }
-                }
-                String effectExpr = (String) action.get("effect");
-                if (effectExpr != null) {
-                    Map<String, Object> evalContext = new HashMap<>(tickContext);
-                    evalContext.putAll(entity.getAttributes());
-                    evalContext.put("attr", entity);
-                    evalContext.put("simulator", this);  // Bind for enqueueEvent calls in JS
-                    ExpressionEvaluator.evaluate(effectExpr, evalContext);
-                    addedAny = true;
-                }
-                // Update last_triggered if action has cycle_length
-                Long cycleLength = (Long) action.get("cycle_length");
-                if (cycleLength != null) {
-                    entity.setAttribute("last_triggered", currentTick);
-                }
+            }
+            String effectExpr = (String) action.get("effect");
+            if (effectExpr != null) {
+                Map<String, Object> evalContext = new HashMap<>(tickContext);
+                evalContext.putAll(entity.getAttributes());
+                evalContext.put("attr", entity);
+                entity.bindRandom(evalContext);
+                evalContext.put("simulator", this);  // Bind for enqueueEvent calls in JS
+                ExpressionEvaluator.evaluate(effectExpr, evalContext, entity.getExpressionOrigin("Actions"));
+                addedAny = true;
+            }
+            // Update last_triggered if action has cycle_length
+            if (cycleLength != null) {
+                entity.setAttribute("last_triggered", currentTick);
             }
         }
         return addedAny;
     }
+
+    private static long lastTriggered(BaseEntity entity) {
+        Object last = entity.getAttribute("last_triggered");
+        if (last == null) {
+            last = entity.getAttribute("start_tick");
+        }
+        return last instanceof Number n ? n.longValue() : 0L;
+    }
 }
\ No newline at end of file
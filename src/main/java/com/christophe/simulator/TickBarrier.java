@@ -0,0 +1,17 @@
+package com.christophe.simulator;
+
+/**
+ * Synchronizes a simulator with others between ticks (e.g., shard.ShardWorker for sharded runs).
+ * Called on the engine thread after each tick; it may enqueue events before returning.
+ */
+@FunctionalInterface
+public interface TickBarrier {
+    /**
+     * Waits until every participant finished the tick and agrees on the next one.
+     * @param tick the tick just processed
+     * @param proposedNext the tick of this simulator's next pending event (capped at maxTicks + 1),
+     *                     or Long.MAX_VALUE if it has none; alone it would then go to tick + 1
+     * @return the tick to process next (past maxTicks ends the run)
+     */
+    long await(long tick, long proposedNext);
+}
@@ -0,0 +1,70 @@
+package com.christophe.simulator.aggregates;
+
+import java.util.Map;
+
+/**
+ * Declares a rollup over one entity type, e.g. total Cow weight or Cows per state.
+ * @param name lookup name used from expressions (aggregates.get('name'))
+ * @param entityType entity type to aggregate (e.g., "Cow")
+ * @param function aggregate function
+ * @param attribute numeric attribute to aggregate (ignored by COUNT, may be null)
+ * @param state only entities in this state count (null for all)
+ * @param groupByState also keep one value per current_state
+ */
+public record AggregateDefinition(String name, String entityType, Function function, String attribute,
+                                  String state, boolean groupByState) {
+
+    public enum Function {
+        SUM, COUNT, AVG, MIN, MAX;
+
+        public static Function parse(String function) {
+            return valueOf(function.trim().toUpperCase());
+        }
+    }
+
+    public AggregateDefinition {
+        if (name == null || entityType == null || function == null) {
+            throw new IllegalArgumentException("Aggregate needs a name, entity type and function");
+        }
+        if (function != Function.COUNT && attribute == null) {
+            throw new IllegalArgumentException("Aggregate " + name + " needs an attribute for " + function);
+        }
+    }
+
+    public static AggregateDefinition of(String name, String entityType, Function function, String attribute) {
+        return new AggregateDefinition(name, entityType, function, attribute, null, false);
+    }
+
+    public static AggregateDefinition count(String name, String entityType) {
+        return new AggregateDefinition(name, entityType, Function.COUNT, null, null, false);
+    }
+
+    public AggregateDefinition inState(String stateName) {
+        return new AggregateDefinition(name, entityType, function, attribute, stateName, groupByState);
+    }
+
+    public AggregateDefinition groupedByState() {
+        return new AggregateDefinition(name, entityType, function, attribute, state, true);
+    }
+
+    /**
+     * Parses a row of the Aggregates tab (keys: name, entityType, function, attribute, state, groupBy).
+     * @param row the tab row
+     * @return the definition
+     */
+    public static AggregateDefinition fromRow(Map<String, Object> row) {
+        return new AggregateDefinition((String) row.get("name"), (String) row.get("entityType"),
+                Function.parse((String) row.get("function")), (String) row.get("attribute"),
+                (String) row.get("state"), "state".equalsIgnoreCase((String) row.get("groupBy")));
+    }
+
+    /**
+     * Whether an attribute change can move this aggregate.
+     * @param attributeName the changed attribute
+     * @return true if the view must be updated
+     */
+    boolean dependsOn(String attributeName) {
+        return attributeName.equals(attribute)
+                || ((state != null || groupByState) && AggregateView.STATE_ATTRIBUTE.equals(attributeName));
+    }
+}
@@ -0,0 +1,105 @@
+package com.christophe.simulator.aggregates;
+
+import com.christophe.simulator.entities.BaseEntity;
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The simulator's aggregate views, bound into expressions as "aggregates"
+ * (e.g., aggregates.get('herd_weight') or aggregates.get('cows_by_state', 'Mature')).
+ * Kept current by entity add/destroy and BaseEntity.setAttribute, so lookups never scan entities.
+ */
+public class AggregateRegistry {
+    private final Map<String, AggregateView> views = new LinkedHashMap<>();  // Name to view
+    private final Map<String, List<AggregateView>> viewsByType = new HashMap<>();
+
+    /**
+     * Adds a view and seeds it from the current entities. Define views before run().
+     * @param definition the aggregate to maintain
+     * @param existing entities already in the simulation
+     * @return the view
+     */
+    public AggregateView define(AggregateDefinition definition, Iterable<BaseEntity> existing) {
+        if (views.containsKey(definition.name())) {
+            throw new IllegalArgumentException("Duplicate aggregate: " + definition.name());
+        }
+        AggregateView view = new AggregateView(definition);
+        views.put(definition.name(), view);
+        viewsByType.computeIfAbsent(definition.entityType(), t -> new ArrayList<>()).add(view);
+        for (BaseEntity entity : existing) {
+            if (definition.entityType().equals(entity.getType())) {
+                view.update(entity);
+            }
+        }
+        return view;
+    }
+
+    public AggregateView getView(String name) {
+        AggregateView view = views.get(name);
+        if (view == null) {
+            throw new IllegalArgumentException("Unknown aggregate: " + name);
+        }
+        return view;
+    }
+
+    /**
+     * @return views by name, in definition order
+     */
+    public Map<String, AggregateView> getViews() {
+        return Collections.unmodifiableMap(views);
+    }
+
+    public boolean isEmpty() {
+        return views.isEmpty();
+    }
+
+    @HostAccess.Export
+    public double get(String name) {
+        return getView(name).get();
+    }
+
+    @HostAccess.Export
+    public double get(String name, String state) {
+        return getView(name).get(state);
+    }
+
+    public void entityAdded(BaseEntity entity) {
+        List<AggregateView> typed = viewsByType.get(entity.getType());
+        if (typed != null) {
+            for (AggregateView view : typed) {
+                view.update(entity);
+            }
+        }
+    }
+
+    public void entityRemoved(BaseEntity entity) {
+        List<AggregateView> typed = viewsByType.get(entity.getType());
+        if (typed != null) {
+            for (AggregateView view : typed) {
+                view.remove(entity.getId());
+            }
+        }
+    }
+
+    /**
+     * Updates the views that depend on a changed attribute.
+     * @param entity the entity
+     * @param attributeName the attribute that was set
+     */
+    public void attributeChanged(BaseEntity entity, String attributeName) {
+        List<AggregateView> typed = viewsByType.get(entity.getType());
+        if (typed != null) {
+            for (AggregateView view : typed) {
+                if (view.getDefinition().dependsOn(attributeName)) {
+                    view.update(entity);
+                }
+            }
+        }
+    }
+}
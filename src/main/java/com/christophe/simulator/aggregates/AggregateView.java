@@ -0,0 +1,249 @@
+package com.christophe.simulator.aggregates;
+
+import com.christophe.simulator.entities.BaseEntity;
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Incrementally maintained value of one AggregateDefinition. Each entity's last contribution is
+ * remembered, so an update retracts the old one and applies the new one: O(1) for SUM/COUNT/AVG,
+ * O(log n) for MIN/MAX. Lookups are O(1). Sums are compensated (Neumaier), so a long run of
+ * retractions does not drift from the sum of the current contributions. Synchronized so it can
+ * be read from any thread. In sharded runs, the merged partials of the other shards are
+ * installed at each tick barrier and combined into every lookup.
+ */
+public class AggregateView {
+    static final String STATE_ATTRIBUTE = "current_state";
+
+    // Running totals for all matching entities or for one state
+    private static final class Group {
+        long members;
+        long numeric;
+        double sum;
+        double compensation;  // Low-order bits lost by sum (Neumaier summation)
+        TreeMap<Double, Integer> values;  // Multiset, only for MIN/MAX
+
+        void add(Double value, boolean ordered) {
+            members++;
+            if (value == null) {
+                return;
+            }
+            numeric++;
+            accumulate(value);
+            if (ordered) {
+                if (values == null) {
+                    values = new TreeMap<>();
+                }
+                values.merge(value, 1, Integer::sum);
+            }
+        }
+
+        void remove(Double value, boolean ordered) {
+            members--;
+            if (value == null) {
+                return;
+            }
+            numeric--;
+            if (numeric == 0) {
+                sum = 0;  // Exact again, whatever rounding was left
+                compensation = 0;
+            } else {
+                accumulate(-value);
+            }
+            if (ordered) {
+                values.computeIfPresent(value, (v, n) -> n == 1 ? null : n - 1);
+            }
+        }
+
+        private void accumulate(double value) {
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+
+        double total() {
+            return sum + compensation;
+        }
+    }
+
+    private static final Group EMPTY = new Group();  // Never mutated
+
+    private record Contribution(String state, Double value) {
+    }
+
+    /**
+     * Mergeable summary of a view or one of its state groups (min/max are NaN when empty or
+     * not tracked by the function).
+     */
+    public record Partial(long members, long numeric, double sum, double min, double max) {
+        public static final Partial EMPTY = new Partial(0, 0, 0, Double.NaN, Double.NaN);
+
+        public Partial merge(Partial other) {
+            if (other.members == 0) {
+                return this;
+            }
+            if (members == 0) {
+                return other;
+            }
+            return new Partial(members + other.members, numeric + other.numeric, sum + other.sum,
+                    mergeExtreme(min, other.min, Math::min), mergeExtreme(max, other.max, Math::max));
+        }
+
+        private static double mergeExtreme(double a, double b, DoubleBinaryOperator pick) {
+            return Double.isNaN(a) ? b : Double.isNaN(b) ? a : pick.applyAsDouble(a, b);
+        }
+    }
+
+    private final AggregateDefinition definition;
+    private final boolean ordered;
+    private final Group all = new Group();
+    private final Map<String, Group> byState = new HashMap<>();
+    private final Map<String, Contribution> contributions = new HashMap<>();  // Entity ID to last contribution
+    private Partial remote = Partial.EMPTY;  // Other shards, as of the last barrier
+    private Map<String, Partial> remoteByState = Map.of();
+
+    AggregateView(AggregateDefinition definition) {
+        this.definition = definition;
+        this.ordered = definition.function() == AggregateDefinition.Function.MIN
+                || definition.function() == AggregateDefinition.Function.MAX;
+    }
+
+    public AggregateDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Re-reads an entity's contribution (after add or an attribute change).
+     * @param entity an entity of the view's type
+     */
+    synchronized void update(BaseEntity entity) {
+        Contribution previous = contributions.get(entity.getId());
+        Object stateValue = entity.getAttribute(STATE_ATTRIBUTE);
+        String state = stateValue == null ? null : stateValue.toString();
+        if (definition.state() != null && !definition.state().equals(state)) {
+            if (previous != null) {
+                retract(entity.getId(), previous);
+            }
+            return;
+        }
+        Double value = null;
+        if (definition.attribute() != null && entity.getAttribute(definition.attribute()) instanceof Number n) {
+            value = n.doubleValue();
+        }
+        Contribution next = new Contribution(state, value);
+        if (next.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            retract(entity.getId(), previous);
+        }
+        contributions.put(entity.getId(), next);
+        all.add(value, ordered);
+        if (definition.groupByState() && state != null) {
+            byState.computeIfAbsent(state, s -> new Group()).add(value, ordered);
+        }
+    }
+
+    synchronized void remove(String entityId) {
+        Contribution previous = contributions.get(entityId);
+        if (previous != null) {
+            retract(entityId, previous);
+        }
+    }
+
+    private void retract(String entityId, Contribution contribution) {
+        contributions.remove(entityId);
+        all.remove(contribution.value(), ordered);
+        if (definition.groupByState() && contribution.state() != null) {
+            Group group = byState.get(contribution.state());
+            group.remove(contribution.value(), ordered);
+            if (group.members == 0) {
+                byState.remove(contribution.state());
+            }
+        }
+    }
+
+    /**
+     * Gets the aggregate over all matching entities.
+     * @return the value (0 for an empty SUM/COUNT, NaN for an empty AVG/MIN/MAX)
+     */
+    @HostAccess.Export
+    public synchronized double get() {
+        return remote == Partial.EMPTY ? valueOf(all) : valueOf(toPartial(all).merge(remote));
+    }
+
+    /**
+     * Gets the aggregate over matching entities in one state (requires groupByState).
+     * @param state the state name
+     * @return the value, as for get()
+     */
+    @HostAccess.Export
+    public synchronized double get(String state) {
+        if (!definition.groupByState()) {
+            throw new IllegalStateException("Aggregate " + definition.name() + " is not grouped by state");
+        }
+        Group group = byState.getOrDefault(state, EMPTY);
+        Partial remoteGroup = remoteByState.get(state);
+        return remoteGroup == null ? valueOf(group) : valueOf(toPartial(group).merge(remoteGroup));
+    }
+
+    /**
+     * @return this view's local state over all matching entities
+     */
+    public synchronized Partial partial() {
+        return toPartial(all);
+    }
+
+    /**
+     * @return this view's local state per current_state (empty unless grouped by state)
+     */
+    public synchronized Map<String, Partial> statePartials() {
+        Map<String, Partial> partials = new HashMap<>();
+        byState.forEach((state, group) -> partials.put(state, toPartial(group)));
+        return partials;
+    }
+
+    /**
+     * Installs the merged state of entities held elsewhere (other shards).
+     * @param all merged partial over all their matching entities
+     * @param perState merged partials per state
+     */
+    public synchronized void setRemote(Partial all, Map<String, Partial> perState) {
+        this.remote = all;
+        this.remoteByState = Map.copyOf(perState);
+    }
+
+    private Partial toPartial(Group group) {
+        boolean hasValues = group.values != null && !group.values.isEmpty();
+        return new Partial(group.members, group.numeric, group.total(),
+                hasValues ? group.values.firstKey() : Double.NaN, hasValues ? group.values.lastKey() : Double.NaN);
+    }
+
+    private double valueOf(Partial p) {
+        return switch (definition.function()) {
+            case SUM -> p.sum();
+            case COUNT -> p.members();
+            case AVG -> p.numeric() == 0 ? Double.NaN : p.sum() / p.numeric();
+            case MIN -> p.min();
+            case MAX -> p.max();
+        };
+    }
+
+    private double valueOf(Group group) {
+        return switch (definition.function()) {
+            case SUM -> group.total();
+            case COUNT -> group.members;
+            case AVG -> group.numeric == 0 ? Double.NaN : group.total() / group.numeric;
+            case MIN -> group.values == null || group.values.isEmpty() ? Double.NaN : group.values.firstKey();
+            case MAX -> group.values == null || group.values.isEmpty() ? Double.NaN : group.values.lastKey();
+        };
+    }
+}
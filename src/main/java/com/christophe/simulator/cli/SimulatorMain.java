@@ -0,0 +1,69 @@
+package com.christophe.simulator.cli;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.loader.SheetsLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+
+/**
+ * Command-line entry point: loads the model, runs it and prints a one-line summary. Also the
+ * main class of the native executable (mvn -Pnative package).
+ * Usage: SimulatorMain [--ticks N] [--parallelism N]
+ */
+public final class SimulatorMain {
+    private static final Logger logger = LoggerFactory.getLogger(SimulatorMain.class);
+    static final long DEFAULT_TICKS = 360;
+
+    private SimulatorMain() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out));
+    }
+
+    /**
+     * Runs the CLI without exiting the process.
+     * @param args command-line arguments
+     * @param out where the summary goes
+     * @return process exit code (0 ok, 1 run failed, 2 bad arguments)
+     */
+    static int run(String[] args, PrintStream out) {
+        long ticks = DEFAULT_TICKS;
+        int parallelism = 1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--ticks" -> ticks = Long.parseLong(args[++i]);
+                    case "--parallelism" -> parallelism = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (ticks < 0) {
+                throw new IllegalArgumentException("--ticks must be at least 0: " + ticks);
+            }
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("--parallelism must be at least 1: " + parallelism);
+            }
+        } catch (RuntimeException e) {  // Bad number, out of range, missing value or unknown option
+            System.err.println(e.getMessage() == null ? e : e.getMessage());
+            System.err.println("Usage: SimulatorMain [--ticks N] [--parallelism N]");
+            return 2;
+        }
+        long start = System.nanoTime();
+        Simulator simulator = new Simulator();
+        try (simulator) {
+            new SheetsLoader().load(simulator);
+            simulator.setParallelism(parallelism);
+            simulator.run(ticks);
+        } catch (Exception e) {
+            logger.error("Simulation failed at tick {}", simulator.getCurrentTick(), e);
+            return 1;
+        }
+        long events = simulator.getMetrics().getEventsAppliedByType().values().stream().mapToLong(Long::longValue).sum();
+        out.printf("Completed at tick %d: %d entities, %d events applied in %d ms%n", simulator.getCurrentTick(),
+                simulator.entities.size(), events, (System.nanoTime() - start) / 1_000_000);
+        return 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.christophe.simulator.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares end-to-end launch time of the simulator CLI on the JVM and as a native executable:
+ * each launcher runs SimulatorMain the given number of times (short runs, so startup and
+ * expression warm-up dominate) and the wall-clock min/median/max are printed.
+ * Usage: StartupBenchmark [--native path/to/christophe-sim] [--runs N] [--ticks N]
+ */
+public final class StartupBenchmark {
+
+    /**
+     * Wall-clock times of one launcher.
+     * @param launcher "jvm" or "native"
+     * @param millis sorted run times
+     */
+    public record Result(String launcher, long[] millis) {
+        public long min() {
+            return millis[0];
+        }
+
+        public long median() {
+            return millis[millis.length / 2];
+        }
+
+        public long max() {
+            return millis[millis.length - 1];
+        }
+    }
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String nativeImage = null;
+        int runs = 5;
+        long ticks = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--native" -> nativeImage = args[++i];
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--ticks" -> ticks = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Usage: StartupBenchmark [--native path] [--runs N] [--ticks N]");
+                    System.exit(2);
+                }
+            }
+        }
+        List<Result> results = new ArrayList<>();
+        results.add(measure("jvm", jvmCommand(ticks), runs));
+        if (nativeImage != null) {
+            results.add(measure("native", List.of(nativeImage, "--ticks", String.valueOf(ticks)), runs));
+        }
+        for (Result r : results) {
+            System.out.printf("%-6s runs=%d min=%d ms median=%d ms max=%d ms%n", r.launcher(), runs, r.min(), r.median(), r.max());
+        }
+        if (results.size() == 2) {
+            System.out.printf("native speedup (median): %.1fx%n", (double) results.get(0).median() / results.get(1).median());
+        }
+    }
+
+    static List<String> jvmCommand(long ticks) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return List.of(java, "-Dpolyglot.engine.WarnInterpreterOnly=false", "-cp", System.getProperty("java.class.path"),
+                SimulatorMain.class.getName(), "--ticks", String.valueOf(ticks));
+    }
+
+    /**
+     * Launches a command repeatedly and times each process from start to exit.
+     * @param launcher label for the result
+     * @param command the command line
+     * @param runs number of launches
+     * @return sorted timings
+     * @throws IOException if the command cannot be started or exits with an error
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static Result measure(String launcher, List<String> command, int runs) throws IOException, InterruptedException {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (!process.waitFor(5, TimeUnit.MINUTES) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                throw new IOException(launcher + " run " + i + " did not exit cleanly: " + String.join(" ", command));
+            }
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        return new Result(launcher, millis);
+    }
+}
@@ -2,6 +2,8 @@ package com.christophe.simulator.entities;
 
 import com.christophe.simulator.Simulator;
 import com.christophe.simulator.utils.ExpressionEvaluator;
+import com.christophe.simulator.utils.ExpressionOrigin;
+import com.christophe.simulator.utils.RandomStream;
 import org.graalvm.polyglot.HostAccess;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +23,8 @@ public class BaseEntity implements Entity {
     private final String id;
     private final String type;
     private final Map<String, Object> attributes = new HashMap<>();
+    private Simulator simulator;  // Set while the entity is part of a simulation
+    private final Map<String, ExpressionOrigin> origins = new HashMap<>(4);  // Tab name to origin, for profiling
 
     /**
      * Constructor for BaseEntity.
@@ -59,6 +63,9 @@ public class BaseEntity implements Entity {
     @Override
     public void setAttribute(String name, Object value) {
         attributes.put(name, value);
+        if (simulator != null) {
+            simulator.fireAttributeChanged(this, name);  // Rollups and samplers
+        }
     }
 
     @HostAccess.Export
@@ -82,11 +89,20 @@ public class BaseEntity implements Entity {
     public void setAttributes(Map<String, Object> newAttributes) {
         attributes.clear();
         attributes.putAll(newAttributes);
+        if (simulator != null) {
+            simulator.fireAttributesReplaced(this);  // Aggregates and reactions re-read everything
+        }
     }
 
     @HostAccess.Export
     @SuppressWarnings("unchecked")
     public void addToList(String key, Object item) {
+        if (attributes.get(key) instanceof EntityContainer container) {
+            if (!container.add(String.valueOf(item))) {
+                logger.debug("Container {}.{} rejected {}", id, key, item);
+            }
+            return;
+        }
         attributes.compute(key, (k, v) -> {
             if (v == null) {
                 v = new ArrayList<>();
@@ -96,6 +112,115 @@ public class BaseEntity implements Entity {
         });
     }
 
+    /**
+     * Gets the origin (this type's sheet plus tab) attributed to expressions evaluated for this entity.
+     * @param tab the tab name, e.g. "Actions"
+     * @return the cached origin
+     */
+    public ExpressionOrigin getExpressionOrigin(String tab) {
+        return origins.computeIfAbsent(tab, t -> ExpressionOrigin.ofEntity(type, t));
+    }
+
+    /**
+     * Gets this entity's random stream, seeded from the simulator's run seed and the entity ID
+     * (bound to expressions as $random).
+     * @return the stream, or null if the entity is not part of a simulation
+     */
+    @HostAccess.Export
+    public RandomStream getRandom() {
+        return simulator == null ? null : simulator.getRandom().forEntity(id);
+    }
+
+    /**
+     * Binds $random into an evaluation context when attached.
+     * @param evalContext the context to extend
+     */
+    public void bindRandom(Map<String, Object> evalContext) {
+        if (simulator != null) {
+            evalContext.put("random", getRandom());
+        }
+    }
+
+    /**
+     * Gets a container (queue or capture) declared on the CaptureDeletion tab.
+     * @param name the container attribute name
+     * @return the container, or null if the attribute is not a container
+     */
+    @HostAccess.Export
+    public EntityContainer getContainer(String name) {
+        return attributes.get(name) instanceof EntityContainer container ? container : null;
+    }
+
+    /**
+     * Gets the containers currently holding this entity (reverse "contained-in" links).
+     * @return unmodifiable list of containers, empty if detached or not contained
+     */
+    @HostAccess.Export
+    public List<EntityContainer> getContainedIn() {
+        return simulator == null ? List.of() : simulator.getContainment().getContainersOf(id);
+    }
+
+    /**
+     * Joins a simulation: materializes CaptureDeletion containers and binds their reverse links.
+     * @param simulator the owning simulator
+     */
+    public void attach(Simulator simulator) {
+        this.simulator = simulator;
+        applyCaptureDeletionRules();
+        for (Object value : attributes.values()) {
+            if (value instanceof EntityContainer container) {
+                container.bindIndex(simulator.getContainment());
+            }
+        }
+    }
+
+    /**
+     * Leaves the simulation (e.g., on destruction): empties owned containers.
+     */
+    public void detach() {
+        for (Object value : attributes.values()) {
+            if (value instanceof EntityContainer container) {
+                container.clear();
+                container.bindIndex(null);
+            }
+        }
+        simulator = null;
+    }
+
+    /**
+     * Creates an EntityContainer for each queue/capture rule on the CaptureDeletion tab
+     * (attribute "capture_deletion"), carrying over any IDs already listed under that name.
+     */
+    @SuppressWarnings("unchecked")
+    private void applyCaptureDeletionRules() {
+        List<Map<String, Object>> rules = (List<Map<String, Object>>) getAttribute("capture_deletion");
+        if (rules == null) {
+            return;
+        }
+        for (Map<String, Object> rule : rules) {
+            String type = (String) rule.get("type");
+            String name = (String) rule.get("container");
+            if ("delete".equalsIgnoreCase(type) || name == null || getAttribute(name) instanceof EntityContainer) {
+                continue;  // Delete rules only matter on destruction (outputs)
+            }
+            EntityContainer container = new EntityContainer(id, name, EntityContainer.Kind.parse(type),
+                    (String) rule.get("targetEntityType"), resolveCapacity(rule.get("maxCapacity")));
+            Object existing = getAttribute(name);
+            if (existing instanceof List<?> list) {
+                list.forEach(item -> container.add(String.valueOf(item)));
+            }
+            setAttribute(name, container);
+        }
+    }
+
+    // Capacity is a number or a "$attr" reference (e.g., "$max_capacity")
+    private int resolveCapacity(Object capacity) {
+        if (capacity instanceof String ref && ref.startsWith("$")) {
+            capacity = getAttribute(ref.substring(1));
+        }
+        return capacity instanceof Number n ? n.intValue() : 0;
+    }
+
     @HostAccess.Export
     public void updateDerivedAttributes(Map<String, Object> globalContext) throws Exception {
         @SuppressWarnings("unchecked")
@@ -105,11 +230,11 @@ public class BaseEntity implements Entity {
         }
         Map<String, Object> evalContext = new HashMap<>(globalContext);
         evalContext.putAll(getAttributes());  // Entity attrs override globals if same key
+        bindRandom(evalContext);
         for (Map.Entry<String, String> entry : derived.entrySet()) {
             String attrName = entry.getKey();
             String expr = entry.getValue();
-            logger.debug("Updating derived attr {} with expr: {}", attrName, expr);
-            Object result = ExpressionEvaluator.evaluate(expr, evalContext);
+            Object result = ExpressionEvaluator.evaluate(expr, evalContext, getExpressionOrigin("DerivedAttributes"));
             setAttribute(attrName, result);
         }
     }
@@ -128,6 +253,7 @@ public class BaseEntity implements Entity {
                 if (Boolean.TRUE.equals(state.get("initial"))) {
                     currentState = (String) state.get("stateName");
                     setAttribute("current_state", currentState);
+                    simulator.fireStateTransition(this, null, currentState);
                     String notification = (String) state.get("notificationEvent");
                     if (notification != null) {
                         enqueueNotification(notification, simulator);
@@ -159,23 +285,27 @@ public class BaseEntity implements Entity {
         // Eval condition (use globals + entity attrs + current_tick)
         Map<String, Object> evalContext = new HashMap<>(globalContext);
         evalContext.putAll(getAttributes());
-        Object cond = ExpressionEvaluator.evaluate(conditionExpr, evalContext);
+        bindRandom(evalContext);
+        Object cond = ExpressionEvaluator.evaluate(conditionExpr, evalContext, getExpressionOrigin("States"));
         if (Boolean.TRUE.equals(cond)) {
             // Transition (assume single next for now; split if comma-separated later)
             setAttribute("current_state", nextStates);
-            String notification = (String) currentStateMap.get("notificationEvent");
+            simulator.fireStateTransition(this, currentState, nextStates);
+            String notification = null;  // Notifications fire on entry, as for the initial state
+            for (Map<String, Object> state : states) {
+                if (nextStates.equals(state.get("stateName"))) {
+                    notification = (String) state.get("notificationEvent");
+                    break;
+                }
+            }
             if (notification != null) {
                 enqueueNotification(notification, simulator);
             }
-            logger.debug("Transitioned {} from {} to {}", getId(), currentState, nextStates);
         }
     }
 
     private void enqueueNotification(String eventType, Simulator simulator) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("entity_id", getId());  // For notified_entity_id
-        BaseEvent notificationEvent = new BaseEvent(simulator.getCurrentTick(), 1, eventType, null, null, params);
-        simulator.enqueueEvent(notificationEvent);
+        simulator.enqueueNotification(eventType, getId());  // Pooled CompactEvent, id -> notified_entity_id
     }
 
     @HostAccess.Export
@@ -192,27 +322,29 @@ public class BaseEntity implements Entity {
             }
             String conditionExpr = (String) action.get("condition");
             if (conditionExpr != null) {
-                Map<String, Object> evalContext = new HashMap<>(simulator.globals);
-                evalContext.put("current_tick", simulator.getCurrentTick());
+                Map<String, Object> evalContext = simulator.newEvaluationContext();
                 evalContext.putAll(getAttributes());  // Entity attrs
-                evalContext.put("notified_entity_id", event.getParams().get("entity_id"));
+                bindRandom(evalContext);
+                evalContext.put("notified_entity_id", event.getSourceEntityId());
+                evalContext.put("attr", this);  // Conditions may inspect containers (e.g., isFull)
                 // Add more event params as needed
-                Object cond = ExpressionEvaluator.evaluate(conditionExpr, evalContext);
+                Object cond = ExpressionEvaluator.evaluate(conditionExpr, evalContext, getExpressionOrigin("Actions"));
                 if (!(cond instanceof Boolean) || !(Boolean) cond) {
                     continue;
                 }
             }
             String effectExpr = (String) action.get("effect");
             if (effectExpr != null) {
-                Map<String, Object> evalContext = new HashMap<>(simulator.globals);
-                evalContext.put("current_tick", simulator.getCurrentTick());
+                Map<String, Object> evalContext = simulator.newEvaluationContext();
                 evalContext.putAll(getAttributes());
-                evalContext.put("notified_entity_id", event.getParams().get("entity_id"));
+                bindRandom(evalContext);
+                evalContext.put("notified_entity_id", event.getSourceEntityId());
                 evalContext.put("attr", this);  // Bind attr to self for effect
-                ExpressionEvaluator.evaluate(effectExpr, evalContext);
+                evalContext.put("simulator", simulator);  // As for smart events: enqueueEvent, destroyEntity
+                ExpressionEvaluator.evaluate(effectExpr, evalContext, getExpressionOrigin("Actions"));
             }
             // Stub NewEntityType/MapAttributes/RemoveSource (impl createNewEntity/destroy later)
-            logger.debug("Handled action {} for event {}", action.get("actionName"), event.getType());
+            simulator.fireActionHandled(this, (String) action.get("actionName"), event);
         }
     }
 }
\ No newline at end of file
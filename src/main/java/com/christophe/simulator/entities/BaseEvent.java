@@ -2,9 +2,8 @@ package com.christophe.simulator.entities;
 
 import com.christophe.simulator.Simulator;
 import com.christophe.simulator.utils.ExpressionEvaluator;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,8 +11,6 @@ import java.util.Map;
  * Base event with condition and effect expressions (from Actions tab).
  */
 public class BaseEvent implements Event {
-    private static final Logger logger = LoggerFactory.getLogger(BaseEvent.class);
-
     private final long time;
     private final int priority;
     private final String type;
@@ -27,7 +24,7 @@ public class BaseEvent implements Event {
         this.type = type;
         this.conditionExpr = conditionExpr;
         this.effectExpr = effectExpr;
-        this.params = params != null ? new HashMap<>(params) : new HashMap<>();
+        this.params = params != null ? Collections.unmodifiableMap(new HashMap<>(params)) : Map.of();
     }
 
     @Override
@@ -47,26 +44,26 @@ public class BaseEvent implements Event {
 
     @Override
     public Map<String, Object> getParams() {
-        return new HashMap<>(params);  // Defensive copy
+        return params;  // Copied once in the constructor, read-only view
+    }
+
+    @Override
+    public String getSourceEntityId() {
+        Object id = params.get("entity_id");
+        return id == null ? null : id.toString();
     }
 
     @Override
     public void apply(Simulator simulator, Map<String, Object> context) throws Exception {
-        logger.debug("Applying event {} with context keys: {}", type, context.keySet());
         if (conditionExpr != null) {
-            logger.debug("Evaluating condition: {}", conditionExpr);
             Object cond = ExpressionEvaluator.evaluate(conditionExpr, context);
-            logger.debug("Condition result: {}", cond);
             if (!(cond instanceof Boolean) || !(Boolean) cond) {
-                logger.debug("Condition false for event {}", type);
                 return;
             }
         }
 
         if (effectExpr != null) {
-            logger.debug("Evaluating effect: {}", effectExpr);
-            Object result = ExpressionEvaluator.evaluate(effectExpr, context);
-            logger.info("Applied effect '{}' for event {}, result: {}", effectExpr, type, result);
+            ExpressionEvaluator.evaluate(effectExpr, context);
         }
 
         // If notification, broadcast to entities for handleActions (moved to Simulator.run for broadcast)
@@ -0,0 +1,138 @@
+package com.christophe.simulator.entities;
+
+import com.christophe.simulator.Simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Allocation-free notification event: interned type ID, interned source-entity ID and a few
+ * primitive value slots. Instances come from an EventPool and are recycled once processed,
+ * so they must not be retained after the event has been applied.
+ */
+public class CompactEvent implements Event {
+    public static final int MAX_VALUES = 4;
+    public static final int NO_SOURCE = -1;
+
+    private final EventPool pool;
+    private final double[] values = new double[MAX_VALUES];
+    private long time;
+    private int priority;
+    private int typeId;
+    private int sourceId = NO_SOURCE;
+    private int valueCount;
+
+    CompactEvent(EventPool pool) {
+        this.pool = pool;
+    }
+
+    void init(long time, int priority, int typeId, int sourceId) {
+        this.time = time;
+        this.priority = priority;
+        this.typeId = typeId;
+        this.sourceId = sourceId;
+        this.valueCount = 0;
+    }
+
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return the pool this event belongs to (and whose symbol tables its IDs refer to)
+     */
+    public EventPool getPool() {
+        return pool;
+    }
+
+    public int getTypeId() {
+        return typeId;
+    }
+
+    @Override
+    public String getType() {
+        return pool.getEventTypes().name(typeId);
+    }
+
+    /**
+     * Gets the interned ID of the entity that raised the notification.
+     * @return the ID in the pool's entity table, or NO_SOURCE
+     */
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    @Override
+    public String getSourceEntityId() {
+        return sourceId == NO_SOURCE ? null : pool.getEntityIds().name(sourceId);
+    }
+
+    /**
+     * Appends a primitive parameter.
+     * @param value the value
+     * @return this event, for chaining
+     * @throws IllegalStateException if all MAX_VALUES slots are used
+     */
+    public CompactEvent addValue(double value) {
+        if (valueCount == MAX_VALUES) {
+            throw new IllegalStateException("CompactEvent holds at most " + MAX_VALUES + " values");
+        }
+        values[valueCount++] = value;
+        return this;
+    }
+
+    public double getValue(int slot) {
+        if (slot >= valueCount) {
+            throw new IndexOutOfBoundsException("Value slot " + slot + " of " + valueCount);
+        }
+        return values[slot];
+    }
+
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * Notifications are passive: reactions run through the reacting entities' Actions. The
+     * engine builds no evaluation context for them, so context is null.
+     */
+    @Override
+    public void apply(Simulator simulator, Map<String, Object> context) {
+        // No condition/effect of its own
+    }
+
+    /**
+     * Materializes params for legacy callers ("entity_id", "value0".."value3"); allocates, so
+     * hot paths should use getSourceEntityId/getValue instead.
+     */
+    @Override
+    public Map<String, Object> getParams() {
+        Map<String, Object> params = new HashMap<>();
+        if (sourceId != NO_SOURCE) {
+            params.put("entity_id", getSourceEntityId());
+        }
+        for (int i = 0; i < valueCount; i++) {
+            params.put("value" + i, values[i]);
+        }
+        return params;
+    }
+
+    @Override
+    public int compareTo(Event o) {
+        if (this.time != o.getTime()) {
+            return Long.compare(this.time, o.getTime());
+        }
+        return Integer.compare(this.priority, o.getPriority());
+    }
+
+    @Override
+    public String toString() {
+        return getType() + "@" + time + (sourceId == NO_SOURCE ? "" : " from " + getSourceEntityId());
+    }
+}
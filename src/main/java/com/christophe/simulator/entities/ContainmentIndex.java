@@ -0,0 +1,81 @@
+package com.christophe.simulator.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reverse "contained-in" links: entity ID to the containers currently holding it.
+ * Maintained by EntityContainer so containment checks and destruction cleanup never scan containers.
+ * Synchronized because reactions on different entities may update their containers concurrently.
+ */
+public class ContainmentIndex {
+    private final Map<String, List<EntityContainer>> containersByMember = new HashMap<>();
+    private final Function<String, String> typeResolver;  // Entity ID to type, null if unknown
+
+    /**
+     * Creates an index that cannot check member types (containers accept any entity).
+     */
+    public ContainmentIndex() {
+        this(id -> null);
+    }
+
+    /**
+     * Creates an index that lets containers check their target entity type.
+     * @param typeResolver entity ID to its type, or null if the entity is unknown
+     */
+    public ContainmentIndex(Function<String, String> typeResolver) {
+        this.typeResolver = typeResolver;
+    }
+
+    String typeOf(String entityId) {
+        return typeResolver.apply(entityId);
+    }
+
+    synchronized void link(String memberId, EntityContainer container) {
+        containersByMember.computeIfAbsent(memberId, k -> new ArrayList<>(2)).add(container);
+    }
+
+    synchronized void unlink(String memberId, EntityContainer container) {
+        List<EntityContainer> containers = containersByMember.get(memberId);
+        if (containers == null) {
+            return;
+        }
+        containers.remove(container);
+        if (containers.isEmpty()) {
+            containersByMember.remove(memberId);
+        }
+    }
+
+    /**
+     * Gets the containers holding an entity.
+     * @param memberId the contained entity ID
+     * @return snapshot of the containers (empty if none)
+     */
+    public synchronized List<EntityContainer> getContainersOf(String memberId) {
+        List<EntityContainer> containers = containersByMember.get(memberId);
+        return containers == null ? List.of() : List.copyOf(containers);
+    }
+
+    public synchronized boolean isContained(String memberId) {
+        return containersByMember.containsKey(memberId);
+    }
+
+    /**
+     * Removes an entity from every container holding it (e.g., on destruction).
+     * @param memberId the entity ID
+     * @return number of containers it was removed from
+     */
+    public synchronized int removeMember(String memberId) {
+        List<EntityContainer> containers = containersByMember.remove(memberId);
+        if (containers == null) {
+            return 0;
+        }
+        for (EntityContainer container : containers) {
+            container.evict(memberId);
+        }
+        return containers.size();
+    }
+}
@@ -0,0 +1,229 @@
+package com.christophe.simulator.entities;
+
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Bounded, insertion-ordered container of entity IDs declared on the CaptureDeletion tab.
+ * Backs both "queue" rules (FIFO processing, e.g. Slaughterhouse queue) and "capture" rules
+ * (containment, e.g. Herd holds Cows). Enqueue, dequeue, membership and removal by ID are O(1).
+ */
+public class EntityContainer {
+
+    /**
+     * Rule type from the CaptureDeletion tab that produced the container.
+     */
+    public enum Kind {
+        QUEUE, CAPTURE;
+
+        /**
+         * Parses the Type column of a CaptureDeletion rule.
+         * @param type rule type, e.g. "queue" or "capture" (case-insensitive)
+         * @return the matching kind
+         * @throws IllegalArgumentException if the type does not describe a container
+         */
+        public static Kind parse(String type) {
+            if ("queue".equalsIgnoreCase(type)) {
+                return QUEUE;
+            }
+            if ("capture".equalsIgnoreCase(type)) {
+                return CAPTURE;
+            }
+            throw new IllegalArgumentException("Not a container rule type: " + type);
+        }
+    }
+
+    private final String ownerId;
+    private final String name;
+    private final Kind kind;
+    private final String targetEntityType;
+    private final int maxCapacity;
+    private final LinkedHashSet<String> members = new LinkedHashSet<>();
+    private ContainmentIndex index;  // Reverse links, bound once the owner joins a simulator
+
+    /**
+     * Constructor for EntityContainer.
+     * @param ownerId ID of the entity holding the container
+     * @param name attribute name of the container (Container/Queue column)
+     * @param kind queue or capture
+     * @param targetEntityType type of the contained entities, or null for any
+     * @param maxCapacity maximum number of members; non-positive means unbounded
+     */
+    public EntityContainer(String ownerId, String name, Kind kind, String targetEntityType, int maxCapacity) {
+        this.ownerId = ownerId;
+        this.name = name;
+        this.kind = kind;
+        this.targetEntityType = targetEntityType;
+        this.maxCapacity = maxCapacity > 0 ? maxCapacity : Integer.MAX_VALUE;
+    }
+
+    @HostAccess.Export
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    @HostAccess.Export
+    public String getName() {
+        return name;
+    }
+
+    @HostAccess.Export
+    public Kind getKind() {
+        return kind;
+    }
+
+    @HostAccess.Export
+    public String getTargetEntityType() {
+        return targetEntityType;
+    }
+
+    @HostAccess.Export
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    /**
+     * Appends an entity ID at the tail. Once bound to a simulator, an entity whose type differs
+     * from the target entity type is rejected.
+     * @param entityId the ID to add
+     * @return false if the container is full, already holds the ID or the entity has the wrong type
+     */
+    @HostAccess.Export
+    public boolean add(String entityId) {
+        if (members.size() >= maxCapacity || !acceptsType(entityId) || !members.add(entityId)) {
+            return false;
+        }
+        if (index != null) {
+            index.link(entityId, this);
+        }
+        return true;
+    }
+
+    // Unknown IDs are let through: only a known entity of another type is a mismatch
+    private boolean acceptsType(String entityId) {
+        if (targetEntityType == null || index == null) {
+            return true;
+        }
+        String type = index.typeOf(entityId);
+        return type == null || type.equals(targetEntityType);
+    }
+
+    /**
+     * Removes and returns the head (oldest member).
+     * @return the head ID, or null if empty
+     */
+    @HostAccess.Export
+    public String poll() {
+        Iterator<String> it = members.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        String head = it.next();
+        it.remove();
+        if (index != null) {
+            index.unlink(head, this);
+        }
+        return head;
+    }
+
+    /**
+     * Returns the head without removing it.
+     * @return the head ID, or null if empty
+     */
+    @HostAccess.Export
+    public String peek() {
+        Iterator<String> it = members.iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Removes an entity ID wherever it sits in the container.
+     * @param entityId the ID to remove
+     * @return true if it was a member
+     */
+    @HostAccess.Export
+    public boolean remove(String entityId) {
+        if (!members.remove(entityId)) {
+            return false;
+        }
+        if (index != null) {
+            index.unlink(entityId, this);
+        }
+        return true;
+    }
+
+    @HostAccess.Export
+    public boolean contains(String entityId) {
+        return members.contains(entityId);
+    }
+
+    @HostAccess.Export
+    public int size() {
+        return members.size();
+    }
+
+    @HostAccess.Export
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    @HostAccess.Export
+    public boolean isFull() {
+        return members.size() >= maxCapacity;
+    }
+
+    /**
+     * Snapshot of the members in insertion order (for inspection or serialization).
+     * @return a copy of the member IDs
+     */
+    @HostAccess.Export
+    public List<String> toList() {
+        return new ArrayList<>(members);
+    }
+
+    /**
+     * Removes all members, dropping their reverse links.
+     */
+    public void clear() {
+        if (index != null) {
+            for (String member : members) {
+                index.unlink(member, this);
+            }
+        }
+        members.clear();
+    }
+
+    /**
+     * Binds the reverse-link index, registering the current members with it.
+     * @param index the simulator's containment index, or null to unbind
+     */
+    void bindIndex(ContainmentIndex index) {
+        if (this.index != null) {
+            for (String member : members) {
+                this.index.unlink(member, this);
+            }
+        }
+        this.index = index;
+        if (index != null) {
+            for (String member : members) {
+                index.link(member, this);
+            }
+        }
+    }
+
+    /**
+     * Drops a member on behalf of the index (destruction cleanup); the index unlinks itself.
+     */
+    void evict(String entityId) {
+        members.remove(entityId);
+    }
+
+    @Override
+    public String toString() {
+        return ownerId + "." + name + members;
+    }
+}
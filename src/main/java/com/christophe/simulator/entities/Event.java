@@ -17,4 +17,13 @@ public interface Event extends Comparable<Event> {
     void apply(Simulator simulator, Map<String, Object> context) throws Exception;
 
     Map<String, Object> getParams();
+
+    /**
+     * Gets the ID of the entity that raised this event (the "entity_id" param), without copying params.
+     * @return the source entity ID, or null if none
+     */
+    default String getSourceEntityId() {
+        Object id = getParams().get("entity_id");
+        return id == null ? null : id.toString();
+    }
 }
\ No newline at end of file
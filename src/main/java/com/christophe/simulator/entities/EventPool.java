@@ -0,0 +1,116 @@
+package com.christophe.simulator.entities;
+
+import com.christophe.simulator.utils.SymbolTable;
+
+import java.util.ArrayDeque;
+
+/**
+ * Free list of CompactEvents plus the symbol tables their IDs refer to. Single-threaded, owned
+ * by the Simulator: events are acquired when enqueued and released after processing, so steady
+ * state notification traffic allocates nothing. Each live event holds a reference on its source
+ * entity ID, so IDs of destroyed entities are recycled only once their notifications are done.
+ */
+public class EventPool {
+    public static final int DEFAULT_MAX_IDLE = 4096;
+
+    private final SymbolTable eventTypes = new SymbolTable();
+    private final SymbolTable entityIds = new SymbolTable();
+    private final ArrayDeque<CompactEvent> idle = new ArrayDeque<>();
+    private final int maxIdle;
+    private long created;
+
+    public EventPool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Constructor for EventPool.
+     * @param maxIdle cap on retained idle events (excess releases are left to GC)
+     */
+    public EventPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public SymbolTable getEventTypes() {
+        return eventTypes;
+    }
+
+    public SymbolTable getEntityIds() {
+        return entityIds;
+    }
+
+    /**
+     * Takes an event from the pool (or creates one) and initializes it.
+     * @param time event tick
+     * @param priority lower runs first within a tick
+     * @param type event type, interned
+     * @param sourceEntityId notifying entity ID, interned; null for none
+     * @return the initialized event
+     */
+    public CompactEvent acquire(long time, int priority, String type, String sourceEntityId) {
+        return acquire(time, priority, eventTypes.intern(type),
+                sourceEntityId == null ? CompactEvent.NO_SOURCE : entityIds.intern(sourceEntityId));
+    }
+
+    /**
+     * Takes an event by already-interned IDs (e.g., when decoding stored events).
+     * @param time event tick
+     * @param priority lower runs first within a tick
+     * @param typeId ID from getEventTypes
+     * @param sourceId ID from getEntityIds, or CompactEvent.NO_SOURCE
+     * @return the initialized event
+     */
+    public CompactEvent acquire(long time, int priority, int typeId, int sourceId) {
+        CompactEvent event = idle.poll();
+        if (event == null) {
+            event = new CompactEvent(this);
+            created++;
+        }
+        event.init(time, priority, typeId, sourceId);
+        retainSource(sourceId);
+        return event;
+    }
+
+    /**
+     * Returns a processed event for reuse; the caller must drop its reference.
+     * @param event an event acquired from this pool
+     */
+    public void release(CompactEvent event) {
+        releaseSource(event.getSourceId());
+        if (idle.size() < maxIdle) {
+            idle.push(event);
+        }
+    }
+
+    /**
+     * Keeps a source-entity ID resolvable while something other than a live event refers to it
+     * (e.g., an event encoded off-heap). Pair with releaseSource.
+     * @param sourceId ID from getEntityIds, or CompactEvent.NO_SOURCE
+     */
+    public void retainSource(int sourceId) {
+        if (sourceId != CompactEvent.NO_SOURCE) {
+            entityIds.retain(sourceId);
+        }
+    }
+
+    public void releaseSource(int sourceId) {
+        if (sourceId != CompactEvent.NO_SOURCE) {
+            entityIds.release(sourceId);
+        }
+    }
+
+    /**
+     * Lets an entity's ID be reused once no pending event refers to it (called on destruction).
+     * @param entityId the destroyed entity's ID
+     */
+    public void retireEntity(String entityId) {
+        entityIds.retire(entityId);
+    }
+
+    /**
+     * @return number of CompactEvent instances ever allocated by this pool
+     */
+    public long getCreatedCount() {
+        return created;
+    }
+}
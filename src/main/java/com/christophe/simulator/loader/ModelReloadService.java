@@ -0,0 +1,160 @@
+package com.christophe.simulator.loader;
+
+import com.christophe.simulator.Simulator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Long-lived service for iterating on a model: watches a ModelSource, re-reads only the sheets
+ * whose revision changed (unchanged sheets come from cache) and reruns the scenario on a fresh
+ * simulator. The GraalJS engine and the watcher thread's context live for the whole session, so
+ * formulas that did not change are not parsed or compiled again; only edited ones are.
+ */
+public class ModelReloadService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ModelReloadService.class);
+
+    /**
+     * Outcome of one rerun.
+     * @param simulator the simulator after the scenario ran
+     * @param reloaded sheets read from the source for this run
+     * @param reused sheets taken from cache
+     * @param loadNanos time spent reading and instantiating the model
+     * @param runNanos time spent in the scenario
+     */
+    public record RunResult(Simulator simulator, Set<String> reloaded, Set<String> reused, long loadNanos, long runNanos) {
+    }
+
+    private record CachedSheet(String revision, ModelSheet sheet) {
+    }
+
+    private final SheetsLoader loader;
+    private final ModelSource source;
+    private final Consumer<Simulator> scenario;
+    private final Map<String, CachedSheet> cache = new HashMap<>();
+    private Map<String, String> lastRevisions;  // Null until the first run
+    private ScheduledExecutorService watcher;
+
+    /**
+     * @param loader reads individual sheets
+     * @param source tells which sheets exist and when they change
+     * @param scenario runs a freshly loaded simulator (e.g., sim -> sim.run(360))
+     */
+    public ModelReloadService(SheetsLoader loader, ModelSource source, Consumer<Simulator> scenario) {
+        this.loader = loader;
+        this.source = source;
+        this.scenario = scenario;
+    }
+
+    /**
+     * Reruns the scenario if any sheet was added, removed or edited since the last run.
+     * @return the run, or null if nothing changed
+     * @throws IOException if the source cannot be listed
+     */
+    public synchronized RunResult runIfChanged() throws IOException {
+        Map<String, String> revisions = source.revisions();
+        if (revisions.equals(lastRevisions)) {
+            return null;
+        }
+        return run(revisions);
+    }
+
+    /**
+     * Reloads changed sheets and reruns the scenario unconditionally.
+     * @return the run
+     * @throws IOException if the source cannot be listed
+     */
+    public synchronized RunResult reloadAndRun() throws IOException {
+        return run(source.revisions());
+    }
+
+    private RunResult run(Map<String, String> revisions) {
+        lastRevisions = Map.copyOf(revisions);  // A broken edit is not retried until the next save
+        long start = System.nanoTime();
+        Set<String> reloaded = new TreeSet<>();
+        Set<String> reused = new TreeSet<>();
+        List<ModelSheet> sheets = new ArrayList<>();
+        for (String name : sheetOrder(revisions)) {
+            String revision = revisions.get(name);
+            CachedSheet cached = cache.get(name);
+            if (cached == null || !cached.revision().equals(revision)) {
+                cached = new CachedSheet(revision, loader.readSheet(name));
+                cache.put(name, cached);
+                reloaded.add(name);
+            } else {
+                reused.add(name);
+            }
+            sheets.add(cached.sheet());
+        }
+        cache.keySet().retainAll(revisions.keySet());  // Deleted or deactivated sheets
+        Simulator simulator = new Simulator();
+        ModelSheet.applyAll(sheets, simulator);
+        long loaded = System.nanoTime();
+        logger.info("Reloaded {} sheet(s) {}, reused {}", reloaded.size(), reloaded, reused);
+        scenario.accept(simulator);
+        return new RunResult(simulator, reloaded, reused, loaded - start, System.nanoTime() - loaded);
+    }
+
+    // Loader order (Globals first), then sheets the loader does not list
+    private List<String> sheetOrder(Map<String, String> revisions) {
+        List<String> order = new ArrayList<>();
+        for (String name : loader.getSheetNames()) {
+            if (revisions.containsKey(name)) {
+                order.add(name);
+            }
+        }
+        for (String name : new TreeSet<>(revisions.keySet())) {
+            if (!order.contains(name)) {
+                order.add(name);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Polls the source on a dedicated thread and reruns the scenario whenever it changes (the
+     * first poll always runs). All runs happen on that thread, so its JS context stays warm.
+     * @param interval delay between polls
+     * @param onRun receives each run
+     */
+    public synchronized void watch(Duration interval, Consumer<RunResult> onRun) {
+        if (watcher != null) {
+            throw new IllegalStateException("Already watching");
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "model-reload");
+            t.setDaemon(true);
+            return t;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            try {
+                RunResult result = runIfChanged();
+                if (result != null) {
+                    onRun.accept(result);
+                }
+            } catch (Exception e) {  // Keep watching; the modeller fixes the sheet and saves again
+                logger.error("Model reload failed", e);
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.christophe.simulator.loader;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.aggregates.AggregateDefinition;
+import com.christophe.simulator.entities.BaseEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What one model spreadsheet defines (Globals.xlsx, or an entity type such as Cow.xlsx), as plain
+ * data: read once, then instantiated into any number of simulators.
+ * @param name spreadsheet name (the entity type, or GLOBALS)
+ * @param globals global values (Globals sheet only)
+ * @param aggregates Aggregates tab rows (Globals sheet only)
+ * @param entities entity ID to its attributes (Inputs, DerivedAttributes, States, ...), in sheet order
+ */
+public record ModelSheet(String name, Map<String, Object> globals, List<Map<String, Object>> aggregates,
+                         Map<String, Map<String, Object>> entities) {
+    public static final String GLOBALS = "Globals";
+
+    public static ModelSheet globals(Map<String, Object> globals, List<Map<String, Object>> aggregates) {
+        return new ModelSheet(GLOBALS, globals, aggregates, Map.of());
+    }
+
+    public static ModelSheet entityType(String type, Map<String, Map<String, Object>> entities) {
+        return new ModelSheet(type, Map.of(), List.of(), entities);
+    }
+
+    /**
+     * Loads sheets into a simulator: globals first, then entities, then aggregates (seeded from
+     * the entities).
+     * @param sheets the model's sheets
+     * @param simulator an empty simulator
+     */
+    public static void applyAll(Collection<ModelSheet> sheets, Simulator simulator) {
+        for (ModelSheet sheet : sheets) {
+            simulator.globals.putAll(sheet.globals);
+        }
+        for (ModelSheet sheet : sheets) {
+            sheet.entities.forEach((id, attributes) -> {
+                BaseEntity entity = new BaseEntity(id, sheet.name);
+                entity.setAttributes(copyAttributes(attributes));
+                simulator.addEntity(entity);
+            });
+        }
+        for (ModelSheet sheet : sheets) {
+            for (Map<String, Object> row : sheet.aggregates) {
+                simulator.defineAggregate(AggregateDefinition.fromRow(row));
+            }
+        }
+    }
+
+    // Each instance owns its top-level lists and maps (e.g., PayRoll entries), so sheets can be reused
+    private static Map<String, Object> copyAttributes(Map<String, Object> attributes) {
+        Map<String, Object> copy = new LinkedHashMap<>(attributes);
+        copy.replaceAll((name, value) -> {
+            if (value instanceof List<?> list) {
+                return new ArrayList<>(list);
+            }
+            if (value instanceof Map<?, ?> map) {
+                return new HashMap<>(map);
+            }
+            return value;
+        });
+        return copy;
+    }
+}
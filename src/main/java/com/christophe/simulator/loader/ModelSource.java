@@ -0,0 +1,19 @@
+package com.christophe.simulator.loader;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Where the model's spreadsheets live, seen as revisions only (e.g., Drive modifiedTime).
+ * ModelReloadService polls it to find which sheets changed. Revisions must describe what
+ * SheetsLoader.readSheet returns; SheetsModelSource derives them from the loaded data itself.
+ */
+@FunctionalInterface
+public interface ModelSource {
+    /**
+     * Lists the active sheets of the model.
+     * @return sheet name (entity type or Globals) to an opaque revision that changes on every edit
+     * @throws IOException if the source cannot be listed
+     */
+    Map<String, String> revisions() throws IOException;
+}
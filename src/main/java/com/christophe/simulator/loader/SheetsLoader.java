@@ -1,7 +1,6 @@
 package com.christophe.simulator.loader;
 
 import com.christophe.simulator.Simulator;
-import com.christophe.simulator.entities.BaseEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,32 +11,96 @@ import java.util.Map;
 
 /**
  * Stub loader for v0.1 (hardcoded data; later use Google Drive/Sheets API).
- * Loads globals, entities with attrs/derived/states/actions.
+ * Loads globals, entities with attrs/derived/states/actions. Each spreadsheet is read into a
+ * ModelSheet on its own, so a reload can re-read just the sheets that changed (ModelReloadService).
  */
 public class SheetsLoader {
     private static final Logger logger = LoggerFactory.getLogger(SheetsLoader.class);
+    private static final List<String> SHEETS = List.of(ModelSheet.GLOBALS, "Farmer", "PayRoll", "Cow", "Slaughterhouse");
 
     public void load(Simulator simulator) {
         logger.info("Stubbing entity loading...");
+        List<ModelSheet> sheets = new ArrayList<>();
+        for (String name : getSheetNames()) {
+            sheets.add(readSheet(name));
+        }
+        ModelSheet.applyAll(sheets, simulator);
+        logger.info("Loaded entities: Farmer, PayRoll, Cow, Slaughterhouse");
+    }
+
+    /**
+     * Gets the spreadsheets of the model (Globals plus one per entity type).
+     * @return sheet names, Globals first
+     */
+    public List<String> getSheetNames() {
+        return SHEETS;
+    }
+
+    /**
+     * Reads one spreadsheet of the model.
+     * @param name sheet name (entity type or ModelSheet.GLOBALS)
+     * @return its definitions, empty if the sheet is unknown
+     */
+    public ModelSheet readSheet(String name) {
+        return switch (name) {
+            case ModelSheet.GLOBALS -> readGlobals();
+            case "Farmer" -> readFarmer();
+            case "PayRoll" -> readPayRoll();
+            case "Cow" -> readCow();
+            case "Slaughterhouse" -> readSlaughterhouse();
+            default -> {
+                logger.warn("Skipping unknown sheet: {}", name);
+                yield ModelSheet.entityType(name, Map.of());
+            }
+        };
+    }
 
+    private ModelSheet readGlobals() {
         // Stub Globals from "Globals.xlsx"
         Map<String, Object> globals = new HashMap<>();
         globals.put("tax_rate", 0.2);
-        simulator.globals.putAll(globals);
         logger.info("Loaded globals: {}", globals);
 
-        // Stub Farmer entity (Inputs: salary=3000, cycle_length=30; Actions: salary_due if (current_tick - start) % cycle_length == 0, enqueue "Farmer.SalaryDue" with amount=$salary
-        BaseEntity farmer = new BaseEntity("f1", "Farmer");
+        // Stub Aggregates tab from "Globals.xlsx" (rollups read as aggregates.get(name) in expressions)
+        List<Map<String, Object>> aggregateRows = new ArrayList<>();
+        Map<String, Object> herdWeight = new HashMap<>();
+        herdWeight.put("name", "herd_weight");
+        herdWeight.put("entityType", "Cow");
+        herdWeight.put("function", "sum");
+        herdWeight.put("attribute", "weight");
+        aggregateRows.add(herdWeight);
+        Map<String, Object> cowsByState = new HashMap<>();
+        cowsByState.put("name", "cows_by_state");
+        cowsByState.put("entityType", "Cow");
+        cowsByState.put("function", "count");
+        cowsByState.put("groupBy", "state");
+        aggregateRows.add(cowsByState);
+        logger.info("Loaded aggregates: {}", aggregateRows);
+        return ModelSheet.globals(globals, aggregateRows);
+    }
+
+    private ModelSheet readFarmer() {
+        // Stub Farmer entity (Inputs: salary=3000, cycle_length=30; Actions: salary_due every cycle_length ticks since start, notify "Farmer.SalaryDue")
         Map<String, Object> farmerAttrs = new HashMap<>();
         farmerAttrs.put("salary", 3000.0);
         farmerAttrs.put("cycle_length", 30L);
-        farmerAttrs.put("start_tick", 0L);
-        farmerAttrs.put("last_triggered", -30L);  // Initial to allow first cycle
-        farmer.setAttributes(farmerAttrs);
-        simulator.addEntity(farmer);
+        farmerAttrs.put("start_tick", 0L);  // First salary falls due one cycle after start
+
+        // Stub Actions tab as List<Map>
+        List<Map<String, Object>> actions = new ArrayList<>();
+        Map<String, Object> salaryAction = new HashMap<>();
+        salaryAction.put("actionName", "SalaryDue");
+        salaryAction.put("trigger", "tick");
+        salaryAction.put("condition", null);
+        salaryAction.put("effect", "simulator.enqueueNotification('Farmer.SalaryDue', attr.getId())");
+        salaryAction.put("cycle_length", 30L);
+        actions.add(salaryAction);
+        farmerAttrs.put("actions", actions);
+        return ModelSheet.entityType("Farmer", Map.of("f1", farmerAttrs));
+    }
 
-        // Stub PayRoll entity (react to "Farmer.SalaryDue": expenses += $amount, add to entries list
-        BaseEntity payRoll = new BaseEntity("p1", "PayRoll");
+    private ModelSheet readPayRoll() {
+        // Stub PayRoll entity (react to "Farmer.SalaryDue": expenses += notifier's salary, add to entries list)
         Map<String, Object> payRollAttrs = new HashMap<>();
         payRollAttrs.put("expenses", 0.0);
         payRollAttrs.put("entries", new ArrayList<Double>());
@@ -46,12 +109,22 @@ public class SheetsLoader {
         Map<String, String> payRollDerived = new HashMap<>();
         payRollDerived.put("net_profit", "$revenue - $expenses * (1 + $tax_rate)");
         payRollAttrs.put("derived_attributes", payRollDerived);
+
+        // Stub Actions tab as List<Map>
+        List<Map<String, Object>> actions = new ArrayList<>();
+        Map<String, Object> salaryAction = new HashMap<>();
+        salaryAction.put("actionName", "PaySalary");
+        salaryAction.put("trigger", "Farmer.SalaryDue");
+        salaryAction.put("condition", null);
+        salaryAction.put("effect", "{ let amount = simulator.entities.get($notified_entity_id).getAttribute('salary'); attr.setAttribute('expenses', attr.getAttribute('expenses') + amount); attr.addToList('entries', amount) }");  // Block: a global var would outlive the evaluation
+        actions.add(salaryAction);
+        payRollAttrs.put("actions", actions);
         logger.info("Loaded PayRoll with expenses: {}, entries: {}, derived: {}", payRollAttrs.get("expenses"), payRollAttrs.get("entries"), payRollDerived);
-        payRoll.setAttributes(payRollAttrs);
-        simulator.addEntity(payRoll);
+        return ModelSheet.entityType("PayRoll", Map.of("p1", payRollAttrs));
+    }
 
+    private ModelSheet readCow() {
         // Stub Cow entity (Inputs: initial_weight=100, growth_rate=10, age=0; Derived: age = $current_tick / 30, weight = $initial_weight + $growth_rate * $age; States: Calf (initial), Mature (condition $age > 2 for test, notify "Cow.Maturity")
-        BaseEntity cow = new BaseEntity("c1", "Cow");
         Map<String, Object> cowAttrs = new HashMap<>();
         cowAttrs.put("initial_weight", 100.0);
         cowAttrs.put("growth_rate", 10.0);
@@ -83,22 +156,34 @@ public class SheetsLoader {
         cowAttrs.put("states", states);
         cowAttrs.put("current_state", "Calf");  // Initial based on tab
         logger.info("Loaded Cow with states: {}", states);
-        cow.setAttributes(cowAttrs);
-        simulator.addEntity(cow);
+        return ModelSheet.entityType("Cow", Map.of("c1", cowAttrs));
+    }
 
-        // Stub Slaughterhouse entity (Inputs: max_capacity=10; Actions: on "Cow.Maturity", condition "attr.getAttribute('queue').size() < $max_capacity", effect "attr.addToList('queue', $notified_entity_id)"
-        BaseEntity slaughterhouse = new BaseEntity("s1", "Slaughterhouse");
+    private ModelSheet readSlaughterhouse() {
+        // Stub Slaughterhouse entity (Inputs: max_capacity=10; CaptureDeletion: queue of Cows bounded by $max_capacity; Actions: on "Cow.Maturity", condition "!attr.getAttribute('queue').isFull()", effect "attr.getAttribute('queue').add($notified_entity_id)"
         Map<String, Object> slaughterAttrs = new HashMap<>();
         slaughterAttrs.put("max_capacity", 10L);
-        slaughterAttrs.put("queue", new ArrayList<String>());  // List of cow IDs
+
+        // Stub CaptureDeletion tab as List<Map> (queue materialized as EntityContainer on addEntity)
+        List<Map<String, Object>> captureDeletion = new ArrayList<>();
+        Map<String, Object> queueRule = new HashMap<>();
+        queueRule.put("ruleName", "SlaughterQueue");
+        queueRule.put("type", "queue");
+        queueRule.put("targetEntityType", "Cow");
+        queueRule.put("condition", null);
+        queueRule.put("container", "queue");  // List of cow IDs
+        queueRule.put("maxCapacity", "$max_capacity");
+        queueRule.put("outputs", null);
+        captureDeletion.add(queueRule);
+        slaughterAttrs.put("capture_deletion", captureDeletion);
 
         // Stub Actions tab as List<Map>
         List<Map<String, Object>> actions = new ArrayList<>();
         Map<String, Object> maturityAction = new HashMap<>();
         maturityAction.put("actionName", "QueueMatureCow");
         maturityAction.put("trigger", "Cow.Maturity");
-        maturityAction.put("condition", "attr.getAttribute('queue').size() < $max_capacity");  // JS expr with size()
-        maturityAction.put("effect", "attr.addToList('queue', $notified_entity_id)");  // JS calling addToList
+        maturityAction.put("condition", "!attr.getAttribute('queue').isFull()");  // Bounded queue check
+        maturityAction.put("effect", "attr.getAttribute('queue').add($notified_entity_id)");  // O(1) enqueue
         maturityAction.put("newEntityType", null);  // No creation
         maturityAction.put("mapAttributes", null);  // No mapping
         maturityAction.put("removeSource", false);  // No destroy
@@ -108,17 +193,13 @@ public class SheetsLoader {
         Map<String, Object> processAction = new HashMap<>();
         processAction.put("actionName", "ProcessQueue");
         processAction.put("trigger", "tick");
-        processAction.put("condition", "attr.getAttribute('queue').size() > 0");
-        processAction.put("effect", "var id = attr.getAttribute('queue').remove(0); var weight = simulator.entities.get(id).getAttribute('weight'); simulator.destroyEntity(id); var carcass = simulator.createNewEntity('Carcass', id + '_carcass'); carcass.setAttribute('weight', weight)");
+        processAction.put("condition", "!attr.getAttribute('queue').isEmpty()");
+        processAction.put("effect", "var id = attr.getAttribute('queue').poll(); var weight = simulator.entities.get(id).getAttribute('weight'); simulator.destroyEntity(id); var carcass = simulator.createNewEntity('Carcass', id + '_carcass'); carcass.setAttribute('weight', weight)");
         processAction.put("cycle_length", 100L);  // High for test to not process in 90 ticks
         actions.add(processAction);
 
         slaughterAttrs.put("actions", actions);
         logger.info("Loaded Slaughterhouse with actions: {}", actions);
-        slaughterhouse.setAttributes(slaughterAttrs);
-        simulator.addEntity(slaughterhouse);
-
-        // Stub initial event or smart check for cycles
-        logger.info("Loaded entities: Farmer, PayRoll, Cow, Slaughterhouse");
+        return ModelSheet.entityType("Slaughterhouse", Map.of("s1", slaughterAttrs));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.christophe.simulator.loader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Model source backed by the loader itself: each sheet's revision is a fingerprint of what
+ * SheetsLoader.readSheet returns, so revisions change exactly when the loaded data does. Every
+ * poll reads every sheet, which suits local or stub loaders; a Drive-backed source should report
+ * modifiedTime instead.
+ */
+public class SheetsModelSource implements ModelSource {
+    private final SheetsLoader loader;
+
+    public SheetsModelSource(SheetsLoader loader) {
+        this.loader = loader;
+    }
+
+    @Override
+    public Map<String, String> revisions() {
+        Map<String, String> revisions = new LinkedHashMap<>();
+        for (String name : loader.getSheetNames()) {
+            revisions.put(name, Integer.toHexString(loader.readSheet(name).hashCode()));  // Records hash by value
+        }
+        return revisions;
+    }
+}
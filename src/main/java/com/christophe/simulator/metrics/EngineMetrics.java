@@ -0,0 +1,217 @@
+package com.christophe.simulator.metrics;
+
+import com.christophe.simulator.utils.ExpressionEvaluator;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Always-on counters and latency histograms for Simulator.run.
+ * Recording methods do not allocate once a key (event type, expression, entity type) has been
+ * seen, so they stay cheap enough for production. Read via snapshot() or JMX.
+ */
+public class EngineMetrics implements EngineMetricsMXBean, ExpressionEvaluator.EvaluationListener {
+
+    /**
+     * Timed phases of a tick.
+     */
+    public enum Phase {
+        SMART_EVENTS, EVENTS, DERIVED, STATES
+    }
+
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final ConcurrentHashMap<String, LongAdder> eventsApplied = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> entitiesByType = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> expressionEvaluations = new ConcurrentHashMap<>();
+    private final Histogram expressionLatency = new Histogram();
+    private final LongAdder expressionFailures = new LongAdder();
+    private final Histogram queueDepths = new Histogram();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final LongAdder ticks = new LongAdder();
+
+    public EngineMetrics() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Histogram();
+        }
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    public void recordEventApplied(String eventType) {
+        counter(eventsApplied, eventType).increment();
+    }
+
+    public void recordQueueDepth(int depth) {
+        queueDepth.set(depth);
+        queueDepths.record(depth);
+    }
+
+    public void recordTick() {
+        ticks.increment();
+    }
+
+    public void entityAdded(String type) {
+        counter(entitiesByType, type).increment();
+    }
+
+    public void entityRemoved(String type) {
+        counter(entitiesByType, type).decrement();
+    }
+
+    @Override
+    public void onEvaluated(String expression, long nanos, boolean failed) {
+        counter(expressionEvaluations, expression).increment();
+        expressionLatency.record(nanos);
+        if (failed) {
+            expressionFailures.increment();
+        }
+    }
+
+    private static LongAdder counter(ConcurrentHashMap<String, LongAdder> counters, String key) {
+        LongAdder adder = counters.get(key);  // Lock-free fast path for known keys
+        return adder != null ? adder : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    /**
+     * Copies all metrics into an immutable snapshot.
+     * @return the snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Phase, Histogram.HistogramSnapshot> phaseSnapshots = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            phaseSnapshots.put(phase, phases[phase.ordinal()].snapshot());
+        }
+        return new MetricsSnapshot(ticks.sum(), Map.copyOf(phaseSnapshots), getEventsAppliedByType(),
+                getEntitiesByType(), getExpressionEvaluations(), expressionLatency.snapshot(),
+                expressionFailures.sum(), queueDepth.get(), queueDepths.snapshot());
+    }
+
+    /**
+     * Registers this instance with the platform MBean server.
+     * @param name value of the "name" key, distinguishing simulators in one JVM
+     * @return the registered object name
+     * @throws JMException if the name is invalid or already taken
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            throw new InstanceAlreadyExistsException(objectName.toString());
+        }
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Removes a registration made by registerMBean; no-op if absent.
+     * @param name the name passed to registerMBean
+     * @throws JMException if the name is invalid
+     */
+    public static void unregisterMBean(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.christophe.simulator:type=EngineMetrics,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public long getMaxQueueDepth() {
+        return queueDepths.snapshot().max();
+    }
+
+    @Override
+    public Map<String, Long> getEventsAppliedByType() {
+        return sums(eventsApplied);
+    }
+
+    @Override
+    public Map<String, Long> getEntitiesByType() {
+        return sums(entitiesByType);
+    }
+
+    @Override
+    public Map<String, Long> getExpressionEvaluations() {
+        return sums(expressionEvaluations);
+    }
+
+    @Override
+    public long getExpressionFailures() {
+        return expressionFailures.sum();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+        return byPhase(Histogram.HistogramSnapshot::count);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseTotalNanos() {
+        return byPhase(Histogram.HistogramSnapshot::total);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMaxNanos() {
+        return byPhase(Histogram.HistogramSnapshot::max);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseP99Nanos() {
+        return byPhase(Histogram.HistogramSnapshot::p99);
+    }
+
+    @Override
+    public void reset() {
+        for (Histogram phase : phases) {
+            phase.reset();
+        }
+        eventsApplied.clear();
+        expressionEvaluations.clear();
+        expressionLatency.reset();
+        expressionFailures.reset();
+        queueDepths.reset();
+        queueDepth.set(0);
+        ticks.reset();
+        // entitiesByType is a gauge of live entities, not reset
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((key, adder) -> result.put(key, adder.sum()));
+        return result;
+    }
+
+    private Map<String, Long> byPhase(ToLongFunction<Histogram.HistogramSnapshot> value) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Phase phase : Phase.values()) {
+            result.put(phase.name(), value.applyAsLong(phases[phase.ordinal()].snapshot()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package com.christophe.simulator.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of EngineMetrics (registered under com.christophe.simulator:type=EngineMetrics).
+ * Latencies are reported in nanoseconds.
+ */
+public interface EngineMetricsMXBean {
+    long getTicks();
+
+    long getQueueDepth();
+
+    long getMaxQueueDepth();
+
+    Map<String, Long> getEventsAppliedByType();
+
+    Map<String, Long> getEntitiesByType();
+
+    Map<String, Long> getExpressionEvaluations();
+
+    long getExpressionFailures();
+
+    Map<String, Long> getPhaseCounts();
+
+    Map<String, Long> getPhaseTotalNanos();
+
+    Map<String, Long> getPhaseMaxNanos();
+
+    Map<String, Long> getPhaseP99Nanos();
+
+    void reset();
+}
@@ -0,0 +1,95 @@
+package com.christophe.simulator.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with power-of-two buckets (bucket i holds values in [2^(i-1), 2^i)).
+ * Recording is allocation-free, so it is safe on the engine hot path; used for latencies
+ * in nanoseconds and for queue depths.
+ */
+public class Histogram {
+    private static final int BUCKETS = 65;  // 0 plus one per bit of a long
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one observation.
+     * @param value non-negative value (negative values are clamped to 0)
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+        count.incrementAndGet();
+        total.addAndGet(v);
+        long current;
+        while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+            // Retry until max is at least v
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Copies the current state; percentiles are bucket upper bounds, capped at the observed max.
+     * @return immutable snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = buckets.get(i);
+            n += copy[i];
+        }
+        long observedMax = max.get();
+        return new HistogramSnapshot(n, total.get(), observedMax,
+                percentile(copy, n, 0.50, observedMax),
+                percentile(copy, n, 0.90, observedMax),
+                percentile(copy, n, 0.99, observedMax));
+    }
+
+    private static long percentile(long[] counts, long n, double quantile, long observedMax) {
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(upper, observedMax);
+            }
+        }
+        return observedMax;
+    }
+
+    /**
+     * Point-in-time view of a histogram.
+     * @param count number of observations
+     * @param total sum of observations
+     * @param max largest observation
+     * @param p50 approximate median
+     * @param p90 approximate 90th percentile
+     * @param p99 approximate 99th percentile
+     */
+    public record HistogramSnapshot(long count, long total, long max, long p50, long p90, long p99) {
+        public double mean() {
+            return count == 0 ? 0.0 : (double) total / count;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.christophe.simulator.metrics;
+
+import java.util.Map;
+
+/**
+ * Immutable point-in-time copy of EngineMetrics. Latencies are in nanoseconds.
+ * @param ticks ticks processed
+ * @param phases latency per tick phase
+ * @param eventsAppliedByType events applied, keyed by event type
+ * @param entitiesByType live entities, keyed by entity type
+ * @param expressionEvaluations evaluations, keyed by expression source
+ * @param expressionLatency latency across all evaluations
+ * @param expressionFailures evaluations that threw
+ * @param queueDepth event queue size at the start of the latest tick
+ * @param queueDepths distribution of per-tick queue sizes
+ */
+public record MetricsSnapshot(
+        long ticks,
+        Map<EngineMetrics.Phase, Histogram.HistogramSnapshot> phases,
+        Map<String, Long> eventsAppliedByType,
+        Map<String, Long> entitiesByType,
+        Map<String, Long> expressionEvaluations,
+        Histogram.HistogramSnapshot expressionLatency,
+        long expressionFailures,
+        long queueDepth,
+        Histogram.HistogramSnapshot queueDepths) {
+}
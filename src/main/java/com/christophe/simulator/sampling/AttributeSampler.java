@@ -0,0 +1,265 @@
+package com.christophe.simulator.sampling;
+
+import com.christophe.simulator.SimulationListener;
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.entities.BaseEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records attributes of one entity type over time into a ColumnarSampleWriter file, either at a
+ * fixed tick interval or when they change (see SamplerConfig). Rows are buffered per chunk of
+ * ticks, so the engine only pays for an array append per sample. At the end of a run, buffered
+ * rows are written except those of a downsampling window the run left open, which carry over to
+ * the next run (a chunk may then be written in several parts). Created by Simulator.addSampler;
+ * the caller closes it when done with the simulator.
+ */
+public class AttributeSampler implements SimulationListener, Closeable {
+    private final SamplerConfig config;
+    private final Simulator simulator;
+    private final ColumnarSampleWriter writer;
+    private final Set<String> sampled;
+    private final Set<BaseEntity> dirty = ConcurrentHashMap.newKeySet();  // Changed since last tick (on change)
+    private final Map<String, double[]> lastWritten = new HashMap<>();  // Entity ID to last row (on change)
+    private long nextSampleTick;
+    private long rowsWritten;
+
+    // Current chunk, column-major
+    private long chunkStart = -1;
+    private int rows;
+    private long[] ticks = new long[256];
+    private String[] entityIds = new String[256];
+    private final double[][] values;
+
+    AttributeSampler(SamplerConfig config, Simulator simulator, Path file) throws IOException {
+        this.config = config;
+        this.simulator = simulator;
+        this.writer = new ColumnarSampleWriter(file, config.name(), config.entityType(), config.attributes());
+        this.sampled = Set.copyOf(config.attributes());
+        this.values = new double[config.attributes().size()][256];
+    }
+
+    /**
+     * Creates a sampler and registers it with the simulator.
+     * @param config what to sample
+     * @param simulator the simulation
+     * @param file output file (created or replaced)
+     * @return the sampler
+     * @throws IOException if the file cannot be created
+     */
+    public static AttributeSampler attach(SamplerConfig config, Simulator simulator, Path file) throws IOException {
+        AttributeSampler sampler = new AttributeSampler(config, simulator, file);
+        for (BaseEntity entity : simulator.entities.values()) {
+            sampler.onEntityAdded(entity);  // Entities already present count as changed
+        }
+        simulator.addListener(sampler);
+        return sampler;
+    }
+
+    public SamplerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return rows written to the file so far (after downsampling)
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public void onEntityAdded(BaseEntity entity) {
+        if (config.isOnChange() && config.entityType().equals(entity.getType())) {
+            dirty.add(entity);
+        }
+    }
+
+    @Override
+    public void onAttributeChanged(BaseEntity entity, String attributeName) {
+        if (config.isOnChange() && sampled.contains(attributeName) && config.entityType().equals(entity.getType())) {
+            dirty.add(entity);
+        }
+    }
+
+    @Override
+    public void onEntityDestroyed(BaseEntity entity) {
+        dirty.remove(entity);
+        lastWritten.remove(entity.getId());
+    }
+
+    @Override
+    public void onTickCompleted(long tick) {
+        if (config.isOnChange()) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            List<BaseEntity> changed = new ArrayList<>(dirty);
+            dirty.clear();
+            changed.sort(Comparator.comparing(BaseEntity::getId));  // Stable row order under parallel reactions
+            for (BaseEntity entity : changed) {
+                sample(entity, tick);
+            }
+            return;
+        }
+        if (tick < nextSampleTick) {
+            return;
+        }
+        nextSampleTick = (tick / config.interval() + 1) * config.interval();
+        for (BaseEntity entity : simulator.entities.values()) {
+            if (config.entityType().equals(entity.getType())) {
+                sample(entity, tick);
+            }
+        }
+    }
+
+    @Override
+    public void onRunCompleted(long tick) {
+        long size = config.downsampleTicks();
+        try {
+            writeChunk(size > 1 ? tick - tick % size : Long.MAX_VALUE);  // tick is the next one to run
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write samples for " + config.name(), e);
+        }
+    }
+
+    private void sample(BaseEntity entity, long tick) {
+        double[] row = new double[values.length];
+        for (int a = 0; a < row.length; a++) {
+            row[a] = entity.getAttribute(config.attributes().get(a)) instanceof Number n ? n.doubleValue() : Double.NaN;
+        }
+        if (config.isOnChange()) {
+            double[] previous = lastWritten.put(entity.getId(), row);
+            if (Arrays.equals(previous, row)) {
+                return;  // Set, but to the same value (e.g., derived attributes every tick)
+            }
+        }
+        append(tick, entity.getId(), row);
+    }
+
+    private void append(long tick, String entityId, double[] row) {
+        if (chunkStart >= 0 && tick >= chunkStart + config.chunkTicks()) {
+            try {
+                writeChunk();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write samples for " + config.name(), e);
+            }
+        }
+        if (rows == 0) {
+            chunkStart = tick - tick % config.chunkTicks();
+        }
+        if (rows == ticks.length) {
+            int capacity = rows * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            entityIds = Arrays.copyOf(entityIds, capacity);
+            for (int a = 0; a < values.length; a++) {
+                values[a] = Arrays.copyOf(values[a], capacity);
+            }
+        }
+        ticks[rows] = tick;
+        entityIds[rows] = entityId;
+        for (int a = 0; a < values.length; a++) {
+            values[a][rows] = row[a];
+        }
+        rows++;
+    }
+
+    private void writeChunk() throws IOException {
+        writeChunk(Long.MAX_VALUE);
+    }
+
+    // Writes buffered rows before tick holdFrom; later ones move to the front of the buffer
+    private void writeChunk(long holdFrom) throws IOException {
+        int end = rows;
+        int ready = end;
+        while (ready > 0 && ticks[ready - 1] >= holdFrom) {  // Rows are in tick order
+            ready--;
+        }
+        if (ready == 0) {
+            return;
+        }
+        rows = ready;
+        if (config.downsampleTicks() > 1) {
+            downsample();  // Rewrites rows [0, ready) only
+        }
+        writer.writeChunk(chunkStart, rows, ticks, entityIds, values);
+        rowsWritten += rows;
+        int held = end - ready;
+        System.arraycopy(ticks, ready, ticks, 0, held);
+        System.arraycopy(entityIds, ready, entityIds, 0, held);
+        for (double[] column : values) {
+            System.arraycopy(column, ready, column, 0, held);
+        }
+        Arrays.fill(entityIds, held, end, null);
+        rows = held;
+    }
+
+    // Mean of one entity's samples within one downsampling window
+    private static final class Window {
+        final long start;
+        final String entityId;
+        final double[] sums;
+        final int[] counts;
+
+        Window(long start, String entityId, int width) {
+            this.start = start;
+            this.entityId = entityId;
+            this.sums = new double[width];
+            this.counts = new int[width];
+        }
+    }
+
+    // Replaces the chunk's rows with one mean row per entity and window (NaNs ignored)
+    private void downsample() {
+        long size = config.downsampleTicks();
+        Map<String, Window> windows = new LinkedHashMap<>();
+        for (int r = 0; r < rows; r++) {
+            long start = ticks[r] - ticks[r] % size;
+            String entityId = entityIds[r];
+            Window w = windows.computeIfAbsent(entityId + '\u0000' + start, k -> new Window(start, entityId, values.length));
+            for (int a = 0; a < values.length; a++) {
+                if (!Double.isNaN(values[a][r])) {
+                    w.sums[a] += values[a][r];
+                    w.counts[a]++;
+                }
+            }
+        }
+        List<Window> ordered = new ArrayList<>(windows.values());
+        ordered.sort(Comparator.comparingLong(w -> w.start));  // Stable: first-seen entity order per window
+        rows = 0;
+        for (Window w : ordered) {
+            ticks[rows] = w.start;
+            entityIds[rows] = w.entityId;
+            for (int a = 0; a < values.length; a++) {
+                values[a][rows] = w.counts[a] == 0 ? Double.NaN : w.sums[a] / w.counts[a];
+            }
+            rows++;
+        }
+    }
+
+    /**
+     * Writes buffered samples, closes the file and unregisters from the simulator.
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        simulator.removeListener(this);
+        try {
+            writeChunk();
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.christophe.simulator.sampling;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads files written by ColumnarSampleWriter, e.g. for plotting or analysis of a long run.
+ */
+public final class ColumnarSampleReader {
+
+    /**
+     * One decoded chunk.
+     * @param startTick first tick covered by the chunk
+     * @param ticks row ticks
+     * @param entityIds row entity IDs
+     * @param values one column per attribute (same order as the file's attributes)
+     */
+    public record Chunk(long startTick, long[] ticks, String[] entityIds, double[][] values) {
+        public int rows() {
+            return ticks.length;
+        }
+    }
+
+    /**
+     * A whole sample file.
+     * @param samplerName the sampler that wrote it
+     * @param entityType the sampled entity type
+     * @param attributes column names
+     * @param chunks chunks in tick order
+     */
+    public record SampleFile(String samplerName, String entityType, List<String> attributes, List<Chunk> chunks) {
+        /**
+         * Gets an attribute column across all chunks.
+         * @param attribute the attribute name
+         * @return values in row order
+         */
+        public double[] column(String attribute) {
+            int a = attributes.indexOf(attribute);
+            if (a < 0) {
+                throw new IllegalArgumentException("Unknown attribute: " + attribute);
+            }
+            return chunks.stream().flatMapToDouble(c -> Arrays.stream(c.values()[a])).toArray();
+        }
+
+        public int rows() {
+            return chunks.stream().mapToInt(Chunk::rows).sum();
+        }
+    }
+
+    private ColumnarSampleReader() {
+    }
+
+    public static SampleFile read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[ColumnarSampleWriter.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, ColumnarSampleWriter.MAGIC)) {
+                throw new IOException("Not a sample file: " + file);
+            }
+            String samplerName = in.readUTF();
+            String entityType = in.readUTF();
+            int attributeCount = in.readInt();
+            List<String> attributes = new ArrayList<>(attributeCount);
+            for (int a = 0; a < attributeCount; a++) {
+                attributes.add(in.readUTF());
+            }
+            List<String> dictionary = new ArrayList<>();
+            List<Chunk> chunks = new ArrayList<>();
+            while (true) {
+                long startTick;
+                try {
+                    startTick = in.readLong();
+                } catch (EOFException end) {
+                    break;
+                }
+                chunks.add(readChunk(in, startTick, attributeCount, dictionary));
+            }
+            return new SampleFile(samplerName, entityType, List.copyOf(attributes), List.copyOf(chunks));
+        }
+    }
+
+    private static Chunk readChunk(DataInputStream in, long startTick, int attributeCount, List<String> dictionary) throws IOException {
+        int rows = in.readInt();
+        int newIds = in.readInt();
+        for (int i = 0; i < newIds; i++) {
+            dictionary.add(in.readUTF());
+        }
+        long[] ticks = new long[rows];
+        try (InputStream column = readColumn(in)) {
+            long tick = startTick;
+            for (int r = 0; r < rows; r++) {
+                tick += readVarLong(column);
+                ticks[r] = tick;
+            }
+        }
+        String[] entityIds = new String[rows];
+        try (InputStream column = readColumn(in)) {
+            for (int r = 0; r < rows; r++) {
+                entityIds[r] = dictionary.get((int) readVarLong(column));
+            }
+        }
+        double[][] values = new double[attributeCount][rows];
+        for (int a = 0; a < attributeCount; a++) {
+            try (DataInputStream column = new DataInputStream(readColumn(in))) {
+                long bits = 0;
+                for (int r = 0; r < rows; r++) {
+                    bits ^= column.readLong();
+                    values[a][r] = Double.longBitsToDouble(bits);
+                }
+            }
+        }
+        return new Chunk(startTick, ticks, entityIds, values);
+    }
+
+    private static InputStream readColumn(DataInputStream in) throws IOException {
+        byte[] compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+        return new InflaterInputStream(new ByteArrayInputStream(compressed));
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated column");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
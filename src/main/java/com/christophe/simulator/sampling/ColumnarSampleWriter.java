@@ -0,0 +1,145 @@
+package com.christophe.simulator.sampling;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes samples as a chunked columnar file. Layout (DataOutput encoding):
+ * <pre>
+ * file   := "SIMCOLS1" utf(samplerName) utf(entityType) int(attributeCount) utf(attribute)* chunk*
+ * chunk  := long(startTick) int(rows) int(newIds) utf(entityId)* column(ticks) column(entities) column(attribute)*
+ * column := int(length) deflated bytes
+ * </pre>
+ * Ticks are varint deltas from the previous row (the first from startTick), entities are varint
+ * indexes into the file's ID dictionary (new IDs are listed by the chunk that first uses them),
+ * and attribute values are doubles XORed with the previous row's bits, which deflate compresses
+ * well for slowly changing values.
+ */
+public class ColumnarSampleWriter implements Closeable {
+    static final byte[] MAGIC = {'S', 'I', 'M', 'C', 'O', 'L', 'S', '1'};
+
+    private final DataOutputStream out;
+    private final int attributeCount;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private long bytesWritten;
+
+    public ColumnarSampleWriter(Path file, String samplerName, String entityType, List<String> attributes) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        this.attributeCount = attributes.size();
+        out.write(MAGIC);
+        out.writeUTF(samplerName);
+        out.writeUTF(entityType);
+        out.writeInt(attributeCount);
+        for (String attribute : attributes) {
+            out.writeUTF(attribute);
+        }
+    }
+
+    /**
+     * Writes one chunk of rows.
+     * @param startTick first tick covered by the chunk
+     * @param rows number of rows
+     * @param ticks row ticks (non-decreasing)
+     * @param entityIds row entity IDs
+     * @param values one array per attribute, rows entries each
+     * @throws IOException if writing fails
+     */
+    public void writeChunk(long startTick, int rows, long[] ticks, String[] entityIds, double[][] values) throws IOException {
+        int[] indexes = new int[rows];
+        List<String> newIds = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            Integer index = dictionary.get(entityIds[r]);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(entityIds[r], index);
+                newIds.add(entityIds[r]);
+            }
+            indexes[r] = index;
+        }
+        out.writeLong(startTick);
+        out.writeInt(rows);
+        out.writeInt(newIds.size());
+        for (String id : newIds) {
+            out.writeUTF(id);
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(rows * 2);
+        long previousTick = startTick;
+        for (int r = 0; r < rows; r++) {
+            writeVarLong(raw, ticks[r] - previousTick);
+            previousTick = ticks[r];
+        }
+        writeColumn(raw);
+
+        raw.reset();
+        for (int r = 0; r < rows; r++) {
+            writeVarLong(raw, indexes[r]);
+        }
+        writeColumn(raw);
+
+        for (int a = 0; a < attributeCount; a++) {
+            raw.reset();
+            long previousBits = 0;
+            for (int r = 0; r < rows; r++) {
+                long bits = Double.doubleToRawLongBits(values[a][r]);
+                writeLong(raw, bits ^ previousBits);
+                previousBits = bits;
+            }
+            writeColumn(raw);
+        }
+    }
+
+    private void writeColumn(ByteArrayOutputStream raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.size() / 4));
+        deflater.reset();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(compressed, deflater)) {
+            raw.writeTo(deflate);
+        }
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+        bytesWritten += 4 + compressed.size();
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * @return compressed column bytes written so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+}
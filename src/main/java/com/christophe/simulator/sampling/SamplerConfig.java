@@ -0,0 +1,56 @@
+package com.christophe.simulator.sampling;
+
+import java.util.List;
+
+/**
+ * What an AttributeSampler records: selected attributes of one entity type, either every
+ * interval ticks or whenever one of them changes.
+ * @param name sampler name (written to the file header)
+ * @param entityType entity type to sample (e.g., "Cow")
+ * @param attributes attributes to record, one column each (non-numeric values are NaN)
+ * @param interval sample every interval ticks, or 0 to sample on change
+ * @param chunkTicks ticks per chunk (chunks are compressed and written independently)
+ * @param downsampleTicks if above 1, each chunk stores the per-entity mean over windows of this many ticks
+ *                        (must divide chunkTicks, so windows never straddle chunks)
+ */
+public record SamplerConfig(String name, String entityType, List<String> attributes, long interval,
+                            long chunkTicks, long downsampleTicks) {
+    public static final long DEFAULT_CHUNK_TICKS = 1000;
+
+    public SamplerConfig {
+        if (name == null || entityType == null || attributes == null || attributes.isEmpty()) {
+            throw new IllegalArgumentException("Sampler needs a name, entity type and attributes");
+        }
+        if (interval < 0 || chunkTicks < 1 || downsampleTicks < 1) {
+            throw new IllegalArgumentException("Invalid sampler ticks for " + name);
+        }
+        if (chunkTicks % downsampleTicks != 0) {
+            throw new IllegalArgumentException("Chunk ticks " + chunkTicks + " of " + name
+                    + " are not a multiple of the downsampling window " + downsampleTicks);
+        }
+        attributes = List.copyOf(attributes);
+    }
+
+    public static SamplerConfig every(String name, String entityType, long interval, String... attributes) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Sampling interval must be at least 1: " + interval);
+        }
+        return new SamplerConfig(name, entityType, List.of(attributes), interval, DEFAULT_CHUNK_TICKS, 1);
+    }
+
+    public static SamplerConfig onChange(String name, String entityType, String... attributes) {
+        return new SamplerConfig(name, entityType, List.of(attributes), 0, DEFAULT_CHUNK_TICKS, 1);
+    }
+
+    public SamplerConfig chunkedBy(long ticks) {
+        return new SamplerConfig(name, entityType, attributes, interval, ticks, downsampleTicks);
+    }
+
+    public SamplerConfig downsampledTo(long ticks) {
+        return new SamplerConfig(name, entityType, attributes, interval, chunkTicks, ticks);
+    }
+
+    public boolean isOnChange() {
+        return interval == 0;
+    }
+}
@@ -0,0 +1,249 @@
+package com.christophe.simulator.shard;
+
+import com.christophe.simulator.aggregates.AggregateView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Drives the conservative lockstep of a sharded run over loopback sockets. Every shard reports at
+ * each tick barrier; the next tick is the earliest any shard proposes or any exchanged
+ * notification needs, so no shard ever receives an event in its past. Idle shards propose
+ * nothing (Long.MAX_VALUE), so the run only steps tick by tick when every shard is idle. Notifications are routed
+ * to the other shards that react to their type, globals changes are merged (two shards writing
+ * different values to one global at the same barrier fail the run, since neither order would
+ * match a single process), and each shard gets the merged aggregate partials of all the others.
+ */
+public class ShardCoordinator implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ShardCoordinator.class);
+    public static final int DEFAULT_ACCEPT_TIMEOUT_MS = 120_000;
+
+    private final ServerSocket server;
+    private final int shardCount;
+    private final long maxTicks;
+
+    // One connected shard
+    private static final class Peer {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        Set<String> triggers;  // Null until reported: route everything
+
+        Peer(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    // What one shard sent at a barrier
+    private record Report(long tick, long proposedNext, List<ShardProtocol.Notification> notifications,
+                          Map<String, Object> globals, Map<String, ShardProtocol.ViewPartials> partials) {
+    }
+
+    /**
+     * Opens the coordinator's loopback port.
+     * @param shardCount number of shards that will connect
+     * @param maxTicks run length shared by all shards
+     * @throws IOException if the port cannot be opened
+     */
+    public ShardCoordinator(int shardCount, long maxTicks) throws IOException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shardCount);
+        }
+        this.shardCount = shardCount;
+        this.maxTicks = maxTicks;
+        this.server = new ServerSocket(0, shardCount, InetAddress.getLoopbackAddress());
+        server.setSoTimeout(DEFAULT_ACCEPT_TIMEOUT_MS);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts all shards and runs barriers until the run ends.
+     * @return the merged result
+     * @throws IOException if a shard fails or disconnects, or shards write conflicting globals
+     */
+    public ShardedRunResult coordinate() throws IOException {
+        Peer[] peers = accept();
+        try {
+            return lockstep(peers);
+        } finally {
+            for (Peer peer : peers) {
+                peer.socket.close();  // On failure, unblocks shards waiting for a release
+            }
+        }
+    }
+
+    private ShardedRunResult lockstep(Peer[] peers) throws IOException {
+        Map<String, Object> globals = new TreeMap<>();
+        Map<String, ShardProtocol.ViewPartials> merged = Map.of();
+        long barriers = 0;
+        long routed = 0;
+        while (true) {
+            Report[] reports = new Report[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                reports[i] = readBarrier(peers[i]);
+            }
+            for (Report report : reports) {
+                if (report.tick() != reports[0].tick()) {
+                    throw new IOException("Shards out of lockstep: ticks " + reports[0].tick() + " and " + report.tick());
+                }
+            }
+            long[] proposals = new long[shardCount];
+            Map<String, Object> changedGlobals = new LinkedHashMap<>();
+            Map<String, Integer> writers = new HashMap<>();
+            for (int i = 0; i < shardCount; i++) {
+                proposals[i] = reports[i].proposedNext();
+                for (ShardProtocol.Notification n : reports[i].notifications()) {
+                    proposals[i] = Math.min(proposals[i], n.time());
+                }
+                for (Map.Entry<String, Object> write : reports[i].globals().entrySet()) {
+                    Integer writer = writers.putIfAbsent(write.getKey(), i);
+                    if (writer != null && !Objects.equals(changedGlobals.get(write.getKey()), write.getValue())) {
+                        throw new IOException("Shards " + writer + " and " + i + " wrote different values to global "
+                                + write.getKey() + " at tick " + reports[i].tick());
+                    }
+                    changedGlobals.put(write.getKey(), write.getValue());
+                }
+            }
+            long next = nextTick(reports[0].tick(), proposals);
+            globals.putAll(changedGlobals);
+            for (int i = 0; i < shardCount; i++) {
+                List<ShardProtocol.Notification> inbound = new ArrayList<>();
+                Map<String, ShardProtocol.ViewPartials> others = new LinkedHashMap<>();
+                for (int j = 0; j < shardCount; j++) {
+                    if (j == i) {
+                        continue;
+                    }
+                    for (ShardProtocol.Notification n : reports[j].notifications()) {
+                        if (peers[i].triggers == null || peers[i].triggers.contains(n.type())) {
+                            inbound.add(n);
+                        }
+                    }
+                    reports[j].partials().forEach((name, p) -> others.merge(name, p, ShardProtocol.ViewPartials::merge));
+                }
+                for (String name : reports[i].partials().keySet()) {
+                    others.putIfAbsent(name, ShardProtocol.ViewPartials.EMPTY);
+                }
+                routed += inbound.size();
+                sendRelease(peers[i], next, inbound, changedGlobals, others);
+            }
+            merged = mergeAll(reports);
+            barriers++;
+            if (next > maxTicks) {
+                break;
+            }
+        }
+        Map<String, Map<String, Object>> entities = new TreeMap<>();
+        for (Peer peer : peers) {
+            readDone(peer, entities);
+        }
+        Map<String, AggregateView.Partial> aggregates = new LinkedHashMap<>();
+        merged.forEach((name, p) -> aggregates.put(name, p.all()));
+        logger.info("Sharded run finished: {} shards, {} barriers, {} notifications routed", shardCount, barriers, routed);
+        return new ShardedRunResult(entities, globals, aggregates, barriers, routed);
+    }
+
+    /**
+     * Picks the tick all shards process next.
+     * @param tick the tick just processed
+     * @param proposals per shard, the earliest of its proposal and its outbound notifications
+     *                  (Long.MAX_VALUE for an idle shard)
+     * @return the earliest proposal, or tick + 1 if every shard is idle
+     */
+    static long nextTick(long tick, long[] proposals) {
+        long next = Long.MAX_VALUE;
+        for (long proposal : proposals) {
+            next = Math.min(next, proposal);
+        }
+        return next == Long.MAX_VALUE ? tick + 1 : next;
+    }
+
+    private Peer[] accept() throws IOException {
+        Peer[] peers = new Peer[shardCount];
+        for (int connected = 0; connected < shardCount; connected++) {
+            Peer peer = new Peer(server.accept());
+            if (peer.in.readByte() != ShardProtocol.HELLO) {
+                throw new IOException("Expected HELLO from " + peer.socket.getRemoteSocketAddress());
+            }
+            int shard = peer.in.readInt();
+            if (shard < 0 || shard >= shardCount || peers[shard] != null) {
+                throw new IOException("Invalid or duplicate shard index " + shard);
+            }
+            peers[shard] = peer;
+            logger.debug("Shard {} connected from {}", shard, peer.socket.getRemoteSocketAddress());
+        }
+        return peers;
+    }
+
+    private Report readBarrier(Peer peer) throws IOException {
+        byte type = peer.in.readByte();
+        if (type != ShardProtocol.BARRIER) {
+            throw new IOException("Expected BARRIER, got message " + type);
+        }
+        long tick = peer.in.readLong();
+        long proposedNext = peer.in.readLong();
+        Set<String> triggers = ShardProtocol.readTriggers(peer.in);
+        if (triggers != null) {
+            peer.triggers = triggers;
+        }
+        return new Report(tick, proposedNext, ShardProtocol.readNotifications(peer.in),
+                ShardProtocol.readValues(peer.in), ShardProtocol.readPartials(peer.in));
+    }
+
+    private static void sendRelease(Peer peer, long next, List<ShardProtocol.Notification> inbound,
+                                    Map<String, Object> globals, Map<String, ShardProtocol.ViewPartials> partials) throws IOException {
+        peer.out.writeByte(ShardProtocol.RELEASE);
+        peer.out.writeLong(next);
+        ShardProtocol.writeNotifications(peer.out, inbound);
+        ShardProtocol.writeValues(peer.out, globals);
+        ShardProtocol.writePartials(peer.out, partials);
+        peer.out.flush();
+    }
+
+    private static Map<String, ShardProtocol.ViewPartials> mergeAll(Report[] reports) {
+        Map<String, ShardProtocol.ViewPartials> all = new LinkedHashMap<>();
+        for (Report report : reports) {
+            report.partials().forEach((name, p) -> all.merge(name, p, ShardProtocol.ViewPartials::merge));
+        }
+        return all;
+    }
+
+    private static void readDone(Peer peer, Map<String, Map<String, Object>> entities) throws IOException {
+        byte type = peer.in.readByte();
+        if (type != ShardProtocol.DONE) {
+            throw new IOException("Expected DONE, got message " + type);
+        }
+        int count = peer.in.readInt();
+        for (int i = 0; i < count; i++) {
+            String id = peer.in.readUTF();
+            entities.put(id, ShardProtocol.readValues(peer.in));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
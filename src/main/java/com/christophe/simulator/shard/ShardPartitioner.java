@@ -0,0 +1,60 @@
+package com.christophe.simulator.shard;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns each entity to one shard of a sharded run, by ID and type only, so a shard can keep its
+ * partition while reading the model (before any entity exists).
+ */
+@FunctionalInterface
+public interface ShardPartitioner {
+    /**
+     * @param entityId the entity's ID
+     * @param entityType the entity's type
+     * @param shardCount number of shards
+     * @return the owning shard, in [0, shardCount)
+     */
+    int shardOf(String entityId, String entityType, int shardCount);
+
+    /**
+     * Spreads entities by a stable hash of their ID.
+     * @return the partitioner
+     */
+    static ShardPartitioner byIdHash() {
+        return (id, type, shardCount) -> Math.floorMod(id.hashCode(), shardCount);
+    }
+
+    /**
+     * Places whole entity types on fixed shards (types not listed go to shard 0).
+     * @param shardByType entity type to shard index
+     * @return the partitioner
+     */
+    static ShardPartitioner byType(Map<String, Integer> shardByType) {
+        Map<String, Integer> copy = Map.copyOf(shardByType);
+        return (id, type, shardCount) -> Math.floorMod(copy.getOrDefault(type, 0), shardCount);
+    }
+
+    /**
+     * Parses a command-line spec: "hash" or "type:Cow=0,Slaughterhouse=1".
+     * @param spec the spec
+     * @return the partitioner
+     */
+    static ShardPartitioner parse(String spec) {
+        if ("hash".equals(spec)) {
+            return byIdHash();
+        }
+        if (spec.startsWith("type:")) {
+            Map<String, Integer> shardByType = new HashMap<>();
+            for (String pair : spec.substring(5).split(",")) {
+                String[] kv = pair.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("Invalid type assignment: " + pair);
+                }
+                shardByType.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+            }
+            return byType(shardByType);
+        }
+        throw new IllegalArgumentException("Unknown partitioner: " + spec);
+    }
+}
@@ -0,0 +1,224 @@
+package com.christophe.simulator.shard;
+
+import com.christophe.simulator.aggregates.AggregateView;
+import com.christophe.simulator.entities.CompactEvent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Binary messages between ShardWorker and ShardCoordinator (one socket per worker).
+ * <pre>
+ * HELLO   := shard:int
+ * BARRIER := tick:long proposedNext:long triggers? notifications globals partials
+ * RELEASE := nextTick:long notifications globals partials
+ * DONE    := entities (id to attribute values)
+ * </pre>
+ * Values are tagged: null, long, double, boolean, string or a list of strings (containers);
+ * anything else is sent as its string form.
+ */
+final class ShardProtocol {
+    static final byte HELLO = 1;
+    static final byte BARRIER = 2;
+    static final byte RELEASE = 3;
+    static final byte DONE = 4;
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+    private static final byte STRINGS = 5;
+
+    /**
+     * A notification crossing shards (a detached copy of a pooled CompactEvent).
+     */
+    record Notification(long time, int priority, String type, String sourceId, double[] values) {
+        static Notification copyOf(CompactEvent event) {
+            double[] values = new double[event.getValueCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = event.getValue(i);
+            }
+            return new Notification(event.getTime(), event.getPriority(), event.getType(), event.getSourceEntityId(), values);
+        }
+    }
+
+    /**
+     * Aggregate state of one view for the barrier exchange.
+     */
+    record ViewPartials(AggregateView.Partial all, Map<String, AggregateView.Partial> byState) {
+        static final ViewPartials EMPTY = new ViewPartials(AggregateView.Partial.EMPTY, Map.of());
+
+        ViewPartials merge(ViewPartials other) {
+            Map<String, AggregateView.Partial> states = new HashMap<>(byState);
+            other.byState.forEach((state, p) -> states.merge(state, p, AggregateView.Partial::merge));
+            return new ViewPartials(all.merge(other.all), states);
+        }
+    }
+
+    private ShardProtocol() {
+    }
+
+    static void writeTriggers(DataOutputStream out, Set<String> triggers) throws IOException {
+        out.writeBoolean(triggers != null);
+        if (triggers != null) {
+            out.writeInt(triggers.size());
+            for (String trigger : triggers) {
+                out.writeUTF(trigger);
+            }
+        }
+    }
+
+    static Set<String> readTriggers(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int count = in.readInt();
+        Set<String> triggers = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            triggers.add(in.readUTF());
+        }
+        return triggers;
+    }
+
+    static void writeNotifications(DataOutputStream out, List<Notification> notifications) throws IOException {
+        out.writeInt(notifications.size());
+        for (Notification n : notifications) {
+            out.writeLong(n.time());
+            out.writeInt(n.priority());
+            out.writeUTF(n.type());
+            writeValue(out, n.sourceId());
+            out.writeByte(n.values().length);
+            for (double v : n.values()) {
+                out.writeDouble(v);
+            }
+        }
+    }
+
+    static List<Notification> readNotifications(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Notification> notifications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long time = in.readLong();
+            int priority = in.readInt();
+            String type = in.readUTF();
+            String sourceId = (String) readValue(in);
+            double[] values = new double[in.readByte()];
+            for (int v = 0; v < values.length; v++) {
+                values[v] = in.readDouble();
+            }
+            notifications.add(new Notification(time, priority, type, sourceId, values));
+        }
+        return notifications;
+    }
+
+    static void writeValues(DataOutputStream out, Map<String, Object> values) throws IOException {
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    static Map<String, Object> readValues(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            values.put(in.readUTF(), readValue(in));
+        }
+        return values;
+    }
+
+    static void writePartials(DataOutputStream out, Map<String, ViewPartials> partials) throws IOException {
+        out.writeInt(partials.size());
+        for (Map.Entry<String, ViewPartials> entry : partials.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writePartial(out, entry.getValue().all());
+            out.writeInt(entry.getValue().byState().size());
+            for (Map.Entry<String, AggregateView.Partial> state : entry.getValue().byState().entrySet()) {
+                out.writeUTF(state.getKey());
+                writePartial(out, state.getValue());
+            }
+        }
+    }
+
+    static Map<String, ViewPartials> readPartials(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, ViewPartials> partials = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            AggregateView.Partial all = readPartial(in);
+            int states = in.readInt();
+            Map<String, AggregateView.Partial> byState = new HashMap<>();
+            for (int s = 0; s < states; s++) {
+                byState.put(in.readUTF(), readPartial(in));
+            }
+            partials.put(name, new ViewPartials(all, byState));
+        }
+        return partials;
+    }
+
+    private static void writePartial(DataOutputStream out, AggregateView.Partial p) throws IOException {
+        out.writeLong(p.members());
+        out.writeLong(p.numeric());
+        out.writeDouble(p.sum());
+        out.writeDouble(p.min());
+        out.writeDouble(p.max());
+    }
+
+    private static AggregateView.Partial readPartial(DataInputStream in) throws IOException {
+        return new AggregateView.Partial(in.readLong(), in.readLong(), in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Number n) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(n.doubleValue());
+        } else if (value instanceof Boolean b) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(STRINGS);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                out.writeUTF(String.valueOf(item));
+            }
+        } else {
+            out.writeByte(STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case NULL -> null;
+            case LONG -> in.readLong();
+            case DOUBLE -> in.readDouble();
+            case BOOLEAN -> in.readBoolean();
+            case STRING -> in.readUTF();
+            case STRINGS -> {
+                String[] items = new String[in.readInt()];
+                for (int i = 0; i < items.length; i++) {
+                    items[i] = in.readUTF();
+                }
+                yield Arrays.asList(items);
+            }
+            default -> throw new IOException("Unknown value tag " + tag);
+        };
+    }
+}
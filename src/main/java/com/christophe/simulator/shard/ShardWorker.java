@@ -0,0 +1,213 @@
+package com.christophe.simulator.shard;
+
+import com.christophe.simulator.SimulationListener;
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.TickBarrier;
+import com.christophe.simulator.aggregates.AggregateView;
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.entities.CompactEvent;
+import com.christophe.simulator.entities.EntityContainer;
+import com.christophe.simulator.entities.Event;
+import com.christophe.simulator.loader.ModelSheet;
+import com.christophe.simulator.loader.SheetsLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Runs one shard of a sharded simulation: the local Simulator keeps only its partition of the
+ * entities and advances in lockstep with the other shards through a ShardCoordinator. At each
+ * tick barrier it sends the notifications it raised, its changed globals and its aggregate
+ * partials, and receives the notifications other shards raised for triggers it reacts to, the
+ * merged globals and the other shards' aggregate partials. Remote notifications are applied at
+ * their original tick, which the coordinator re-runs when needed (as for same-tick events).
+ */
+public class ShardWorker implements TickBarrier, SimulationListener, Closeable {
+    private final Simulator simulator;
+    private final int shard;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final List<ShardProtocol.Notification> outbox = new ArrayList<>();
+    private final Map<String, Object> syncedGlobals = new HashMap<>();  // As of the last barrier
+    private Set<String> sentTriggers;
+    private boolean injecting;  // Remote notifications are not sent back out
+    private long barriers;
+
+    /**
+     * Connects to the coordinator and joins the simulator to the lockstep.
+     * @param simulator the shard's simulator (already partitioned)
+     * @param shard this shard's index
+     * @param host coordinator host
+     * @param port coordinator port
+     * @throws IOException if the coordinator cannot be reached
+     */
+    public ShardWorker(Simulator simulator, int shard, String host, int port) throws IOException {
+        this.simulator = simulator;
+        this.shard = shard;
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);  // Small barrier messages, latency bound
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeByte(ShardProtocol.HELLO);
+        out.writeInt(shard);
+        out.flush();
+        syncedGlobals.putAll(simulator.globals);
+        simulator.addListener(this);
+        simulator.setTickBarrier(this);
+    }
+
+    /**
+     * Loads this shard's partition of the model: every sheet's globals and aggregates, but only
+     * the entities the partitioner assigns to this shard (others are never instantiated).
+     * @param simulator an empty simulator
+     * @param loader reads the model's sheets
+     * @param partitioner entity to shard assignment
+     * @param shard this shard's index
+     * @param shardCount number of shards
+     * @return number of entities loaded
+     */
+    public static int load(Simulator simulator, SheetsLoader loader, ShardPartitioner partitioner, int shard, int shardCount) {
+        List<ModelSheet> sheets = new ArrayList<>();
+        for (String name : loader.getSheetNames()) {
+            ModelSheet sheet = loader.readSheet(name);
+            Map<String, Map<String, Object>> owned = new LinkedHashMap<>();
+            sheet.entities().forEach((id, attributes) -> {
+                if (partitioner.shardOf(id, sheet.name(), shardCount) == shard) {
+                    owned.put(id, attributes);
+                }
+            });
+            sheets.add(new ModelSheet(sheet.name(), sheet.globals(), sheet.aggregates(), owned));
+        }
+        ModelSheet.applyAll(sheets, simulator);
+        return simulator.entities.size();
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public long getBarrierCount() {
+        return barriers;
+    }
+
+    @Override
+    public void onEventEnqueued(Event event) {
+        if (!injecting && event instanceof CompactEvent compact) {
+            outbox.add(ShardProtocol.Notification.copyOf(compact));  // Pooled: copy before it is recycled
+        }
+    }
+
+    @Override
+    public long await(long tick, long proposedNext) {
+        try {
+            sendBarrier(tick, proposedNext);
+            return receiveRelease();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard " + shard + " lost the coordinator at tick " + tick, e);
+        }
+    }
+
+    private void sendBarrier(long tick, long proposedNext) throws IOException {
+        out.writeByte(ShardProtocol.BARRIER);
+        out.writeLong(tick);
+        out.writeLong(proposedNext);
+        Set<String> triggers = simulator.getReactionTriggers();
+        ShardProtocol.writeTriggers(out, triggers.equals(sentTriggers) ? null : triggers);
+        sentTriggers = triggers;
+        ShardProtocol.writeNotifications(out, outbox);
+        outbox.clear();
+        Map<String, Object> changed = new LinkedHashMap<>();
+        simulator.globals.forEach((name, value) -> {
+            if (!Objects.equals(syncedGlobals.get(name), value)) {
+                changed.put(name, value);
+            }
+        });
+        ShardProtocol.writeValues(out, changed);
+        Map<String, ShardProtocol.ViewPartials> partials = new LinkedHashMap<>();
+        simulator.getAggregates().getViews().forEach((name, view) ->
+                partials.put(name, new ShardProtocol.ViewPartials(view.partial(), view.statePartials())));
+        ShardProtocol.writePartials(out, partials);
+        out.flush();
+    }
+
+    private long receiveRelease() throws IOException {
+        byte type = in.readByte();
+        if (type != ShardProtocol.RELEASE) {
+            throw new IOException("Expected RELEASE, got message " + type);
+        }
+        barriers++;
+        long nextTick = in.readLong();
+        List<ShardProtocol.Notification> inbound = ShardProtocol.readNotifications(in);
+        injecting = true;
+        try {
+            for (ShardProtocol.Notification n : inbound) {
+                CompactEvent event = simulator.getEventPool().acquire(n.time(), n.priority(), n.type(), n.sourceId());
+                for (double value : n.values()) {
+                    event.addValue(value);
+                }
+                simulator.enqueueEvent(event);
+            }
+        } finally {
+            injecting = false;
+        }
+        Map<String, Object> globals = ShardProtocol.readValues(in);
+        globals.forEach((name, value) -> {
+            if (!Objects.equals(simulator.globals.get(name), value)) {
+                simulator.globals.put(name, value);  // Re-freezes expression constants
+            }
+            syncedGlobals.put(name, value);
+        });
+        Map<String, ShardProtocol.ViewPartials> remote = ShardProtocol.readPartials(in);
+        remote.forEach((name, partials) -> {
+            AggregateView view = simulator.getAggregates().getViews().get(name);
+            if (view != null) {
+                view.setRemote(partials.all(), partials.byState());
+            }
+        });
+        return nextTick;
+    }
+
+    /**
+     * Reports the shard's final entity state to the coordinator (after run returns).
+     * @throws IOException if sending fails
+     */
+    public void finish() throws IOException {
+        out.writeByte(ShardProtocol.DONE);
+        out.writeInt(simulator.entities.size());
+        for (BaseEntity entity : simulator.entities.values()) {
+            out.writeUTF(entity.getId());
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("type", entity.getType());
+            entity.getAttributes().forEach((name, value) -> {
+                if (value instanceof Number || value instanceof String || value instanceof Boolean) {
+                    values.put(name, value);
+                } else if (value instanceof EntityContainer container) {
+                    values.put(name, container.toList());
+                }
+            });
+            ShardProtocol.writeValues(out, values);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        simulator.setTickBarrier(null);
+        simulator.removeListener(this);
+        socket.close();
+    }
+}
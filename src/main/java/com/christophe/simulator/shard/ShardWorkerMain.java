@@ -0,0 +1,39 @@
+package com.christophe.simulator.shard;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.loader.SheetsLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point of a shard worker process, started by ShardedSimulation.
+ * Arguments: host port shard shardCount partitioner maxTicks (partitioner as in ShardPartitioner.parse).
+ */
+public final class ShardWorkerMain {
+    private static final Logger logger = LoggerFactory.getLogger(ShardWorkerMain.class);
+
+    private ShardWorkerMain() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 6) {
+            System.err.println("Usage: ShardWorkerMain <host> <port> <shard> <shardCount> <partitioner> <maxTicks>");
+            System.exit(2);
+        }
+        int shard = Integer.parseInt(args[2]);
+        int shardCount = Integer.parseInt(args[3]);
+        try {
+            Simulator simulator = new Simulator();
+            int owned = ShardWorker.load(simulator, new SheetsLoader(), ShardPartitioner.parse(args[4]), shard, shardCount);
+            logger.info("Shard {}/{} owns {} entities", shard, shardCount, owned);
+            try (ShardWorker worker = new ShardWorker(simulator, shard, args[0], Integer.parseInt(args[1]))) {
+                simulator.run(Long.parseLong(args[5]));
+                worker.finish();
+            }
+        } catch (Exception e) {
+            logger.error("Shard {} failed", shard, e);
+            System.exit(1);
+        }
+        System.exit(0);  // Do not wait on engine or reaction threads
+    }
+}
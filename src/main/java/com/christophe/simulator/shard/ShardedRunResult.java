@@ -0,0 +1,17 @@
+package com.christophe.simulator.shard;
+
+import com.christophe.simulator.aggregates.AggregateView;
+
+import java.util.Map;
+
+/**
+ * Outcome of a sharded run, merged across shards.
+ * @param entities final simple attributes per entity ID (plus "type"; containers as ID lists)
+ * @param globals merged globals after the last barrier
+ * @param aggregates aggregate partials merged over all shards, by view name
+ * @param barriers tick barriers passed
+ * @param notificationsRouted notifications delivered to another shard
+ */
+public record ShardedRunResult(Map<String, Map<String, Object>> entities, Map<String, Object> globals,
+                               Map<String, AggregateView.Partial> aggregates, long barriers, long notificationsRouted) {
+}
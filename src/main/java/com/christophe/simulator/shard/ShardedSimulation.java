@@ -0,0 +1,57 @@
+package com.christophe.simulator.shard;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the model as several worker JVMs on this machine (ShardWorkerMain), coordinated over
+ * loopback sockets by a ShardCoordinator in the calling process.
+ */
+public final class ShardedSimulation {
+
+    private ShardedSimulation() {
+    }
+
+    /**
+     * Launches the shards and waits for the run to finish.
+     * @param shardCount number of worker processes
+     * @param partitioner partitioner spec ("hash" or "type:Cow=0,Slaughterhouse=1")
+     * @param maxTicks run length
+     * @return the merged result
+     * @throws IOException if a worker cannot be started or fails
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    public static ShardedRunResult run(int shardCount, String partitioner, long maxTicks) throws IOException, InterruptedException {
+        ShardPartitioner.parse(partitioner);  // Fail fast before forking
+        try (ShardCoordinator coordinator = new ShardCoordinator(shardCount, maxTicks)) {
+            List<Process> workers = new ArrayList<>(shardCount);
+            try {
+                for (int shard = 0; shard < shardCount; shard++) {
+                    workers.add(launch(coordinator.getPort(), shard, shardCount, partitioner, maxTicks));
+                }
+                ShardedRunResult result = coordinator.coordinate();
+                for (Process worker : workers) {
+                    if (!worker.waitFor(30, TimeUnit.SECONDS) || worker.exitValue() != 0) {
+                        throw new IOException("Shard worker " + worker.pid() + " did not exit cleanly");
+                    }
+                }
+                return result;
+            } finally {
+                workers.forEach(Process::destroyForcibly);  // No-op for exited workers
+            }
+        }
+    }
+
+    private static Process launch(int port, int shard, int shardCount, String partitioner, long maxTicks) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ShardWorkerMain.class.getName(), InetAddress.getLoopbackAddress().getHostAddress(), String.valueOf(port), String.valueOf(shard),
+                String.valueOf(shardCount), partitioner, String.valueOf(maxTicks))
+                .inheritIO()
+                .start();
+    }
+}
@@ -0,0 +1,290 @@
+package com.christophe.simulator.store;
+
+import com.christophe.simulator.entities.CompactEvent;
+import com.christophe.simulator.entities.EventPool;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Pending-event store for long horizons that keeps CompactEvents off the Java heap.
+ * Events are encoded as fixed-size records into tick buckets: buckets inside the near-future
+ * window live in direct ByteBuffer segments, later buckets are appended to spill files (one open
+ * channel per spilled bucket) and read back through a direct buffer when due. Heap use is per bucket, not per event, so the pending count
+ * is bounded by disk. Single-threaded, like the Simulator that owns it.
+ */
+public class OffHeapEventStore implements Closeable {
+    /** time, priority, type ID, source ID, value count, value slots. */
+    public static final int RECORD_BYTES = Long.BYTES + 4 * Integer.BYTES + CompactEvent.MAX_VALUES * Double.BYTES;
+
+    private static final int SEGMENT_RECORDS = 1024;
+    private static final int SPILL_BUFFER_RECORDS = 64;
+    private static final int MAX_FREE_SEGMENTS = 64;
+
+    private final Path spillDir;
+    private final long bucketTicks;
+    private final int windowBuckets;
+    private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+    private final ArrayDeque<ByteBuffer> freeSegments = new ArrayDeque<>();
+    private long windowStart;  // First bucket index of the in-memory window
+    private long size;
+    private EventPool sourcePool;  // Pool whose source IDs the stored records retain
+
+    private final class Bucket {
+        final long index;
+        long minTime = Long.MAX_VALUE;
+        final List<ByteBuffer> segments = new ArrayList<>();  // In-memory buckets
+        Path file;  // Spilled buckets
+        FileChannel channel;  // Open from the first flush until drained or closed
+        ByteBuffer spillBuffer;
+
+        Bucket(long index) {
+            this.index = index;
+            if (index >= windowStart + windowBuckets) {
+                file = spillDir.resolve("bucket-" + index + ".bin");
+                spillBuffer = ByteBuffer.allocateDirect(SPILL_BUFFER_RECORDS * RECORD_BYTES);
+            }
+        }
+
+        ByteBuffer writable() throws IOException {
+            if (spillBuffer != null) {
+                if (!spillBuffer.hasRemaining()) {
+                    flush();
+                }
+                return spillBuffer;
+            }
+            ByteBuffer last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last == null || !last.hasRemaining()) {
+                last = freeSegments.isEmpty() ? ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_BYTES) : freeSegments.pop();
+                segments.add(last);
+            }
+            return last;
+        }
+
+        void flush() throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            spillBuffer.flip();
+            while (spillBuffer.hasRemaining()) {
+                channel.write(spillBuffer);
+            }
+            spillBuffer.clear();
+        }
+
+        /**
+         * Reads the spill file back in spill-buffer-sized chunks (whole records each); the
+         * unflushed tail in spillBuffer is overwritten, so flush or consume it first.
+         */
+        int readFile(ToIntFunction<ByteBuffer> decoder) throws IOException {
+            if (channel == null) {
+                return 0;
+            }
+            int count = 0;
+            long position = 0;
+            long end = channel.size();
+            while (position < end) {
+                spillBuffer.clear();
+                while (spillBuffer.hasRemaining() && position < end) {
+                    int read = channel.read(spillBuffer, position);
+                    if (read < 0) {
+                        throw new EOFException("Spill file " + file + " truncated at " + position);
+                    }
+                    position += read;
+                }
+                spillBuffer.flip();
+                count += decoder.applyAsInt(spillBuffer);
+            }
+            spillBuffer.clear();
+            return count;
+        }
+
+        void deleteFile() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Constructor for OffHeapEventStore.
+     * @param spillDir directory for spill files (created if missing)
+     * @param bucketTicks ticks per bucket
+     * @param windowBuckets buckets kept in direct memory ahead of the current tick
+     * @throws IOException if the spill directory cannot be created
+     */
+    public OffHeapEventStore(Path spillDir, long bucketTicks, int windowBuckets) throws IOException {
+        if (bucketTicks <= 0 || windowBuckets <= 0) {
+            throw new IllegalArgumentException("bucketTicks and windowBuckets must be positive");
+        }
+        this.spillDir = Files.createDirectories(spillDir);
+        this.bucketTicks = bucketTicks;
+        this.windowBuckets = windowBuckets;
+    }
+
+    /**
+     * Encodes an event; the caller may release it to its pool afterwards. The store keeps a
+     * reference on the source entity ID until the event is drained.
+     * @param event the event to store (time must not be earlier than the last drained tick)
+     */
+    public void add(CompactEvent event) {
+        long index = Math.floorDiv(event.getTime(), bucketTicks);
+        Bucket bucket = buckets.get(index);
+        if (bucket == null) {
+            bucket = new Bucket(index);
+            buckets.put(index, bucket);
+        }
+        try {
+            ByteBuffer out = bucket.writable();
+            out.putLong(event.getTime());
+            out.putInt(event.getPriority());
+            out.putInt(event.getTypeId());
+            out.putInt(event.getSourceId());
+            out.putInt(event.getValueCount());
+            for (int i = 0; i < CompactEvent.MAX_VALUES; i++) {
+                out.putDouble(i < event.getValueCount() ? event.getValue(i) : 0.0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill event bucket " + index, e);
+        }
+        bucket.minTime = Math.min(bucket.minTime, event.getTime());
+        sourcePool = event.getPool();
+        sourcePool.retainSource(event.getSourceId());
+        size++;
+    }
+
+    /**
+     * @return earliest stored event time, or Long.MAX_VALUE if empty
+     */
+    public long nextEventTime() {
+        Map.Entry<Long, Bucket> first = buckets.firstEntry();
+        return first == null ? Long.MAX_VALUE : first.getValue().minTime;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Moves every bucket holding an event at or before the tick into the sink. Whole buckets are
+     * decoded, so the sink (the simulator's queue) also receives that bucket's near-future events.
+     * @param tick the current tick
+     * @param pool pool whose symbol tables the stored IDs refer to
+     * @param sink receives the decoded events
+     * @return number of events drained
+     */
+    public int drainUpTo(long tick, EventPool pool, Consumer<CompactEvent> sink) {
+        windowStart = Math.max(windowStart, Math.floorDiv(tick, bucketTicks));
+        int drained = 0;
+        Map.Entry<Long, Bucket> first;
+        while ((first = buckets.firstEntry()) != null && first.getValue().minTime <= tick) {
+            Bucket bucket = buckets.pollFirstEntry().getValue();
+            try {
+                drained += bucket.file != null ? drainFile(bucket, pool, sink) : drainSegments(bucket, pool, sink);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read event bucket " + bucket.index, e);
+            }
+        }
+        size -= drained;
+        return drained;
+    }
+
+    private int drainSegments(Bucket bucket, EventPool pool, Consumer<CompactEvent> sink) {
+        int count = 0;
+        for (ByteBuffer segment : bucket.segments) {
+            segment.flip();
+            count += decode(segment, pool, sink);
+            segment.clear();
+            if (freeSegments.size() < MAX_FREE_SEGMENTS) {
+                freeSegments.push(segment);
+            }
+        }
+        return count;
+    }
+
+    private int drainFile(Bucket bucket, EventPool pool, Consumer<CompactEvent> sink) throws IOException {
+        if (bucket.spillBuffer.position() > 0) {
+            bucket.flush();
+        }
+        int count = bucket.readFile(in -> decode(in, pool, sink));
+        bucket.deleteFile();
+        return count;
+    }
+
+    private static int decode(ByteBuffer in, EventPool pool, Consumer<CompactEvent> sink) {
+        int count = 0;
+        while (in.remaining() >= RECORD_BYTES) {
+            long time = in.getLong();
+            int priority = in.getInt();
+            int typeId = in.getInt();
+            int sourceId = in.getInt();
+            int valueCount = in.getInt();
+            CompactEvent event = pool.acquire(time, priority, typeId, sourceId);
+            pool.releaseSource(sourceId);  // The event now holds the store's reference
+            for (int i = 0; i < CompactEvent.MAX_VALUES; i++) {
+                double value = in.getDouble();
+                if (i < valueCount) {
+                    event.addValue(value);
+                }
+            }
+            sink.accept(event);
+            count++;
+        }
+        return count;
+    }
+
+    private static int releaseSources(ByteBuffer in, EventPool pool) {
+        int count = 0;
+        while (in.remaining() >= RECORD_BYTES) {
+            pool.releaseSource(in.getInt(in.position() + Long.BYTES + 2 * Integer.BYTES));
+            in.position(in.position() + RECORD_BYTES);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Discards all pending events, releasing their source IDs, and deletes spill files.
+     * @throws IOException if a spill file cannot be read or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        for (Bucket bucket : buckets.values()) {
+            if (bucket.file == null) {
+                for (ByteBuffer segment : bucket.segments) {
+                    segment.flip();
+                    releaseSources(segment, sourcePool);
+                }
+                continue;
+            }
+            bucket.spillBuffer.flip();
+            releaseSources(bucket.spillBuffer, sourcePool);  // Unflushed tail first: readFile reuses the buffer
+            bucket.readFile(in -> releaseSources(in, sourcePool));
+            bucket.deleteFile();
+        }
+        buckets.clear();
+        freeSegments.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,416 @@
+package com.christophe.simulator.stream;
+
+import com.christophe.simulator.SimulationListener;
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.TickBarrier;
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.entities.EntityContainer;
+import com.christophe.simulator.entities.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a simulator on its own thread and publishes one TickDelta per processed tick to
+ * Flow subscribers. The engine steps through a TickBarrier: at each tick boundary it hands the
+ * tick's delta to every subscription, then honors pause and stop. Each subscriber keeps at most
+ * one undelivered delta, so history is never buffered: in PACED mode the engine waits until
+ * every subscriber has taken its delta, in CONFLATE mode it keeps running and folds new deltas
+ * into the undelivered one (a slow dashboard sees fewer, wider deltas).
+ */
+public class StreamingRun implements Flow.Publisher<TickDelta>, SimulationListener, TickBarrier {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingRun.class);
+
+    public enum Mode {
+        /** The engine waits for every subscriber before the next tick. */
+        PACED,
+        /** The engine never waits; undelivered deltas are merged. */
+        CONFLATE
+    }
+
+    private final Simulator simulator;
+    private final long maxTicks;
+    private final Mode mode;
+    private final Executor executor;
+    private final List<TickSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object monitor = new Object();  // Guards paused/stopped and wakes the engine
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    // Current tick's changes, collected on the engine thread
+    private final Map<String, Map<String, Object>> attributes = new HashMap<>();
+    private final Map<String, Map<String, Object>> lastPublished = new HashMap<>();  // Entity ID to attribute values seen
+    private final List<TickDelta.Transition> transitions = new ArrayList<>();
+    private final List<TickDelta.AppliedEvent> events = new ArrayList<>();
+    private final List<String> added = new ArrayList<>();
+    private final List<String> destroyed = new ArrayList<>();
+    private int droppedEvents;
+    private long deltaStart = -1;
+
+    private boolean paused;
+    private boolean stopped;
+    private Thread engine;
+    private volatile Throwable failure;
+
+    /**
+     * Creates a streaming run (start it once subscribers are attached).
+     * @param simulator the loaded simulator
+     * @param maxTicks last tick to run
+     * @param mode what to do when a subscriber falls behind
+     * @param executor runs subscriber callbacks
+     */
+    public StreamingRun(Simulator simulator, long maxTicks, Mode mode, Executor executor) {
+        this.simulator = Objects.requireNonNull(simulator, "simulator");
+        this.maxTicks = maxTicks;
+        this.mode = Objects.requireNonNull(mode, "mode");
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    public StreamingRun(Simulator simulator, long maxTicks, Mode mode) {
+        this(simulator, maxTicks, mode, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super TickDelta> subscriber) {
+        TickSubscription subscription = new TickSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (completed.getCount() == 0) {
+            subscription.complete(failure);
+        }
+    }
+
+    /**
+     * Starts the run on a new "simulator-stream" thread.
+     * @return this run
+     */
+    public synchronized StreamingRun start() {
+        if (engine != null) {
+            throw new IllegalStateException("Streaming run already started");
+        }
+        engine = new Thread(this::runEngine, "simulator-stream");
+        engine.start();
+        return this;
+    }
+
+    private void runEngine() {
+        simulator.addListener(this);
+        simulator.setTickBarrier(this);
+        try {
+            simulator.run(maxTicks);
+        } catch (Throwable t) {
+            logger.error("Streaming run failed at tick {}", simulator.getCurrentTick(), t);
+            failure = t;
+        } finally {
+            simulator.setTickBarrier(null);
+            simulator.removeListener(this);
+            completed.countDown();
+            for (TickSubscription subscription : subscriptions) {
+                subscription.complete(failure);
+            }
+        }
+    }
+
+    /** Holds the engine at the next tick boundary until resume() or stop(). */
+    public void pause() {
+        synchronized (monitor) {
+            paused = true;
+        }
+    }
+
+    public void resume() {
+        synchronized (monitor) {
+            paused = false;
+            monitor.notifyAll();
+        }
+    }
+
+    /** Ends the run at the next tick boundary; subscribers then receive onComplete. */
+    public void stop() {
+        synchronized (monitor) {
+            stopped = true;
+            monitor.notifyAll();
+        }
+    }
+
+    public boolean isPaused() {
+        synchronized (monitor) {
+            return paused;
+        }
+    }
+
+    /**
+     * Waits for the run to end.
+     * @param timeout maximum wait
+     * @param unit unit of timeout
+     * @return true if the run ended
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return completed.await(timeout, unit);
+    }
+
+    /**
+     * Gets the exception that ended the run early.
+     * @return the failure, or null
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public long await(long tick, long proposedNext) {
+        if (proposedNext != tick) {  // Tick done (a re-processed tick keeps collecting)
+            publish(sealDelta(tick));
+        }
+        boolean stopping;
+        synchronized (monitor) {
+            try {
+                while (!stopped && (paused || (mode == Mode.PACED && hasBacklog()))) {
+                    monitor.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+            }
+            stopping = stopped;
+        }
+        if (!stopping) {
+            return proposedNext == Long.MAX_VALUE ? tick + 1 : proposedNext;  // Idle: step as a lone run does
+        }
+        if (proposedNext == tick) {
+            publish(sealDelta(tick));  // Stopped mid-tick: still hand out what it did
+        }
+        return Math.max(tick, maxTicks) + 1;
+    }
+
+    private boolean hasBacklog() {
+        for (TickSubscription subscription : subscriptions) {
+            if (subscription.hasPending()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publish(TickDelta delta) {
+        for (TickSubscription subscription : subscriptions) {
+            subscription.offer(delta);
+        }
+    }
+
+    private synchronized TickDelta sealDelta(long tick) {
+        TickDelta delta = new TickDelta(deltaStart < 0 ? tick : deltaStart, tick, new HashMap<>(attributes),
+                List.copyOf(transitions), List.copyOf(events), droppedEvents, List.copyOf(added), List.copyOf(destroyed));
+        attributes.clear();
+        transitions.clear();
+        events.clear();
+        added.clear();
+        destroyed.clear();
+        droppedEvents = 0;
+        deltaStart = -1;
+        return delta;
+    }
+
+    @Override
+    public synchronized void onTickStarted(long tick, int queueSize) {
+        if (deltaStart < 0) {
+            deltaStart = tick;
+        }
+    }
+
+    @Override
+    public synchronized void onAttributeChanged(BaseEntity entity, String attributeName) {
+        Object value = snapshot(entity.getAttribute(attributeName));
+        Map<String, Object> seen = lastPublished.computeIfAbsent(entity.getId(), k -> new HashMap<>());
+        if (seen.containsKey(attributeName) && Objects.equals(seen.get(attributeName), value)) {
+            return;  // Derived attributes are rewritten every tick; only real changes are streamed
+        }
+        seen.put(attributeName, value);
+        attributes.computeIfAbsent(entity.getId(), k -> new HashMap<>()).put(attributeName, value);
+    }
+
+    @Override
+    public synchronized void onStateTransition(BaseEntity entity, String fromState, String toState, long tick) {
+        transitions.add(new TickDelta.Transition(entity.getId(), fromState, toState, tick));
+    }
+
+    @Override
+    public synchronized void onEventApplied(Event event, long tick) {
+        if (events.size() < TickDelta.MAX_EVENTS) {
+            events.add(new TickDelta.AppliedEvent(event.getType(), event.getSourceEntityId(), tick));
+        } else {
+            droppedEvents++;
+        }
+    }
+
+    @Override
+    public synchronized void onEntityAdded(BaseEntity entity) {
+        added.add(entity.getId());
+    }
+
+    @Override
+    public synchronized void onEntityDestroyed(BaseEntity entity) {
+        destroyed.add(entity.getId());
+        attributes.remove(entity.getId());
+        lastPublished.remove(entity.getId());
+    }
+
+    /** Copies mutable attribute values so deltas never share state with entities. */
+    private static Object snapshot(Object value) {
+        if (value instanceof EntityContainer container) {
+            return container.toList();
+        }
+        if (value instanceof List<?> list) {
+            return new ArrayList<>(list);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return new HashMap<>(map);
+        }
+        return value;
+    }
+
+    /**
+     * One subscriber's demand and its single undelivered delta. Signals are serialized by a
+     * drain loop on the executor (work-in-progress counter), as Flow requires.
+     */
+    private final class TickSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super TickDelta> subscriber;
+        private final AtomicInteger wip = new AtomicInteger();
+        private long demand;  // Guarded by this
+        private TickDelta pending;  // Guarded by this
+        private boolean done;  // Guarded by this
+        private Throwable error;  // Guarded by this
+        private Throwable requestError;  // Guarded by this, ends the subscription right away
+        private volatile boolean cancelled;
+        private boolean terminated;  // Touched by the drain loop only
+
+        TickSubscription(Flow.Subscriber<? super TickDelta> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        synchronized boolean hasPending() {
+            return pending != null && !cancelled;
+        }
+
+        void offer(TickDelta delta) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (this) {
+                pending = pending == null ? delta : pending.merge(delta);
+            }
+            drain();
+        }
+
+        void complete(Throwable failure) {
+            synchronized (this) {
+                done = true;
+                error = failure;
+            }
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                synchronized (this) {
+                    pending = null;
+                    requestError = new IllegalArgumentException("Non-positive request: " + n);
+                }
+            } else {
+                synchronized (this) {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                pending = null;
+            }
+            wakeEngine();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drainLoop);
+            }
+        }
+
+        private void drainLoop() {
+            do {
+                while (!cancelled && !terminated) {
+                    TickDelta next = null;
+                    boolean finish = false;
+                    Throwable failure = null;
+                    synchronized (this) {
+                        if (requestError != null || (pending == null && done)) {
+                            finish = true;
+                            failure = requestError != null ? requestError : error;
+                        } else if (pending != null && demand > 0) {
+                            next = pending;
+                            pending = null;
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                        }
+                    }
+                    if (finish) {
+                        terminated = true;
+                        subscriptions.remove(this);
+                        signalEnd(failure);
+                    } else if (next != null) {
+                        signalNext(next);
+                        wakeEngine();
+                    } else {
+                        break;
+                    }
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void signalNext(TickDelta delta) {
+            try {
+                subscriber.onNext(delta);
+            } catch (Throwable t) {
+                logger.error("Subscriber failed on tick {}, cancelling it", delta.tick(), t);
+                cancel();
+            }
+        }
+
+        private void signalEnd(Throwable failure) {
+            try {
+                if (failure == null) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(failure);
+                }
+            } catch (Throwable t) {
+                logger.error("Subscriber failed on completion", t);
+            }
+            wakeEngine();
+        }
+
+        private void wakeEngine() {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.christophe.simulator.stream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What changed during one tick of a streaming run (or several, when conflated for a slow
+ * subscriber). Holds copies only, never live entities or pooled events. Conflated deltas keep the
+ * net effect per entity, so their size is bounded by the entities touched, not the ticks covered.
+ * @param fromTick first tick covered (equals tick unless conflated)
+ * @param tick last tick covered
+ * @param attributes entity ID to changed attribute values (latest value wins)
+ * @param transitions state transitions in order (conflated: one per entity, first from, last to)
+ * @param events applied events in order (capped at MAX_EVENTS)
+ * @param droppedEvents applied events left out by the cap
+ * @param added IDs of entities added (conflated: only those still alive at the end)
+ * @param destroyed IDs of entities destroyed (conflated: only those alive before fromTick; an ID
+ *                  also in added was destroyed, then re-added)
+ */
+public record TickDelta(long fromTick, long tick, Map<String, Map<String, Object>> attributes,
+                        List<Transition> transitions, List<AppliedEvent> events, int droppedEvents,
+                        List<String> added, List<String> destroyed) {
+    /** Cap on applied events kept per delta, so conflation stays bounded. */
+    public static final int MAX_EVENTS = 1024;
+
+    public record Transition(String entityId, String fromState, String toState, long tick) {
+    }
+
+    public record AppliedEvent(String type, String sourceEntityId, long tick) {
+    }
+
+    public boolean isConflated() {
+        return fromTick != tick;
+    }
+
+    /**
+     * Combines this delta with the one that followed it, keeping the net effect per entity:
+     * entities added and destroyed in between drop out, and consecutive transitions collapse.
+     * @param later the next delta
+     * @return a delta covering both
+     */
+    public TickDelta merge(TickDelta later) {
+        Set<String> mergedAdded = new LinkedHashSet<>(added);
+        mergedAdded.addAll(later.added);
+        Set<String> mergedDestroyed = new LinkedHashSet<>(destroyed);
+        Set<String> unseen = new HashSet<>();  // Added and destroyed within the window
+        for (String id : later.destroyed) {
+            if (!mergedAdded.remove(id)) {
+                mergedDestroyed.add(id);  // Existed before the window
+            } else if (!mergedDestroyed.contains(id)) {
+                unseen.add(id);
+            }
+        }
+        Map<String, Map<String, Object>> mergedAttributes = new HashMap<>(attributes);
+        later.attributes.forEach((id, values) -> mergedAttributes.merge(id, values, (a, b) -> {
+            Map<String, Object> m = new HashMap<>(a);
+            m.putAll(b);
+            return m;
+        }));
+        for (String id : later.destroyed) {
+            if (!mergedAdded.contains(id)) {
+                mergedAttributes.remove(id);
+            }
+        }
+        Map<String, Transition> netTransitions = new LinkedHashMap<>();
+        for (List<Transition> list : List.of(transitions, later.transitions)) {
+            for (Transition t : list) {
+                netTransitions.merge(t.entityId(), t, (first, next) ->
+                        new Transition(first.entityId(), first.fromState(), next.toState(), next.tick()));
+            }
+        }
+        netTransitions.keySet().removeAll(unseen);
+        List<AppliedEvent> mergedEvents = new ArrayList<>(events);
+        int room = Math.max(0, MAX_EVENTS - mergedEvents.size());
+        mergedEvents.addAll(later.events.subList(0, Math.min(room, later.events.size())));
+        int dropped = droppedEvents + later.droppedEvents + Math.max(0, later.events.size() - room);
+        return new TickDelta(fromTick, later.tick, mergedAttributes, new ArrayList<>(netTransitions.values()),
+                mergedEvents, dropped, new ArrayList<>(mergedAdded), new ArrayList<>(mergedDestroyed));
+    }
+}
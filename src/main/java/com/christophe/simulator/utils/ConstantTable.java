@@ -0,0 +1,74 @@
+package com.christophe.simulator.utils;
+
+import org.graalvm.polyglot.Context;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Frozen snapshot of the simulation globals, installed in the simulator's EvaluationScope for
+ * the duration of a run. Constants are bound once per JS context instead of being copied into
+ * every evaluation context, and expressions are specialized against them on first use (see
+ * ExpressionSpecializer). Specializations live and die with the table, so freezing a new table
+ * after a global is mutated invalidates them all.
+ */
+public final class ConstantTable {
+    private final Map<String, Object> values;
+    private final Map<String, String> literals = new HashMap<>();  // Inlinable names to JS literals
+    private final ConcurrentHashMap<String, ExpressionSpecializer.Specialized> specialized = new ConcurrentHashMap<>();
+
+    private ConstantTable(Map<String, Object> values) {
+        this.values = values;
+        values.forEach((name, value) -> {
+            if (value == null) {
+                return;  // Bound as null, never inlined
+            }
+            String literal = ExpressionSpecializer.literalOf(value);
+            if (literal != null) {
+                literals.put(name, literal);
+            }
+        });
+    }
+
+    /**
+     * Snapshots globals as constants.
+     * @param globals current global values (null values allowed, e.g. blank cells)
+     * @return the frozen table
+     */
+    public static ConstantTable freeze(Map<String, Object> globals) {
+        return new ConstantTable(Collections.unmodifiableMap(new HashMap<>(globals)));
+    }
+
+    public Map<String, Object> values() {
+        return values;
+    }
+
+    public boolean isConstant(String name) {
+        return values.containsKey(name);
+    }
+
+    String literal(String name) {
+        return literals.get(name);
+    }
+
+    Set<String> inlinableNames() {
+        return literals.keySet();
+    }
+
+    // Specialized source for an expression, computed once per table
+    ExpressionSpecializer.Specialized specialize(String expression, Context context) {
+        ExpressionSpecializer.Specialized s = specialized.get(expression);
+        return s != null ? s : specialized.computeIfAbsent(expression,
+                e -> ExpressionSpecializer.specialize(e, this, context));
+    }
+
+    /**
+     * @return number of expressions specialized against this table
+     */
+    public int getSpecializedCount() {
+        return specialized.size();
+    }
+}
@@ -0,0 +1,54 @@
+package com.christophe.simulator.utils;
+
+/**
+ * One simulator's expression state: the frozen globals its formulas are specialized against and
+ * the listener and optional profiler its evaluations are reported to. A run enters its scope on every thread
+ * evaluating for it (ExpressionEvaluator.enter), so simulators running concurrently in one
+ * process never see each other's constants, metrics or profiles.
+ */
+public final class EvaluationScope {
+    private final ExpressionEvaluator.EvaluationListener listener;
+    private volatile ConstantTable constants;  // Replaced when a global changes mid-run
+    private volatile ExpressionProfiler profiler;  // Opt-in, null when off
+
+    public EvaluationScope() {
+        this(null);
+    }
+
+    /**
+     * @param listener called after every evaluation in this scope (e.g., engine metrics), or null
+     */
+    public EvaluationScope(ExpressionEvaluator.EvaluationListener listener) {
+        this.listener = listener;
+    }
+
+    public ExpressionEvaluator.EvaluationListener getListener() {
+        return listener;
+    }
+
+    public ExpressionProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Turns formula profiling on or off for this scope.
+     * @param profiler the profiler to record into, or null to disable
+     */
+    public void setProfiler(ExpressionProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public ConstantTable getConstants() {
+        return constants;
+    }
+
+    /**
+     * Installs frozen constants, replacing any previous table. Contexts rebind lazily on their
+     * next evaluation and expressions are re-specialized, so installing a new table is how a
+     * mutated global invalidates specialized code.
+     * @param table the constants, or null to go back to plain evaluation
+     */
+    public void setConstants(ConstantTable table) {
+        this.constants = table;
+    }
+}
@@ -0,0 +1,60 @@
+package com.christophe.simulator.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Static reach analysis of Actions expressions. Reactions run with attr bound to the reacting
+ * entity, so anything reached through attr or $vars stays on that entity; anything that can
+ * reach other entities or engine state (simulator, aggregates, Java.type, lifecycle methods) is
+ * marked global and must run serially. Attribute values are assumed to be owned by their entity
+ * (the loader creates a fresh list/container per entity).
+ * <p>
+ * There are deliberately no per-attribute read/write sets: reaction lanes are per entity, so two
+ * local reactions that could conflict on an attribute already share a lane and run in dispatch
+ * order. Attribute sets would only let one entity's reactions run in parallel, which would
+ * reorder its writes; the one-lane-per-entity plus global-serial scheme only needs this flag.
+ */
+public final class ExpressionAccessAnalyzer {
+    private static final Pattern GLOBAL_REACH = Pattern.compile(
+            "\\b(?:simulator|aggregates|Java|Polyglot|globalThis)\\b|\\battr\\s*\\.\\s*(?:setAttributes|getContainedIn|handleActions|updateStates|updateDerivedAttributes|attach|detach)\\b");
+
+    private static final ConcurrentHashMap<String, AccessSet> cache = new ConcurrentHashMap<>();
+
+    private ExpressionAccessAnalyzer() {
+    }
+
+    /**
+     * What one expression may touch.
+     * @param global true if it may touch other entities or engine state
+     */
+    public record AccessSet(boolean global) {
+        public static final AccessSet NONE = new AccessSet(false);
+        private static final AccessSet GLOBAL = new AccessSet(true);
+
+        /**
+         * Combines two access sets (e.g., condition and effect of an action).
+         * @param other the other set
+         * @return the union
+         */
+        public AccessSet union(AccessSet other) {
+            return global || other.global ? GLOBAL : NONE;
+        }
+    }
+
+    /**
+     * Analyzes an expression (cached per source string).
+     * @param expression condition or effect source, may be null
+     * @return its access set
+     */
+    public static AccessSet analyze(String expression) {
+        if (expression == null || expression.isBlank()) {
+            return AccessSet.NONE;
+        }
+        return cache.computeIfAbsent(expression, ExpressionAccessAnalyzer::compute);
+    }
+
+    private static AccessSet compute(String expression) {
+        return GLOBAL_REACH.matcher(expression).find() ? AccessSet.GLOBAL : AccessSet.NONE;
+    }
+}
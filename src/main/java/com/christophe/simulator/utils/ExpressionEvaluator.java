@@ -1,30 +1,91 @@
 package com.christophe.simulator.utils;
 
 import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.HostAccess;
 import org.graalvm.polyglot.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 /**
  * Evaluator for JS-like expressions using GraalJS Polyglot Context for full Java interop.
  * Supports math, logic, $vars from context, and calling public methods on bound Java objects.
  * Later extend for dates (e.g., bind java.time classes).
+ * JS contexts are single-threaded, so each thread gets its own Context on one shared Engine
+ * (parsed code is shared across them); this lets reactions run on worker threads.
+ * Each thread evaluates within the EvaluationScope it entered (the running simulator's); while
+ * that scope holds a ConstantTable, its values stay bound in the thread's context and expressions
+ * are evaluated in their specialized form (constants inlined and folded).
  */
 public class ExpressionEvaluator {
     private static final Logger logger = LoggerFactory.getLogger(ExpressionEvaluator.class);
-    private static final Context context;
+    private static final Engine engine = Engine.create("js");
+    private static final ThreadLocal<Slot> slots = ThreadLocal.withInitial(Slot::new);
+    private static final ConcurrentHashMap<String, String> resolvedSources = new ConcurrentHashMap<>();  // $-stripped
 
-    static {
-        context = Context.newBuilder("js")
+    /**
+     * Callback invoked after every evaluation (e.g., engine metrics). Must not allocate or block.
+     */
+    @FunctionalInterface
+    public interface EvaluationListener {
+        /**
+         * @param expression the expression source as passed to evaluate
+         * @param nanos evaluation wall time
+         * @param failed whether evaluation threw
+         */
+        void onEvaluated(String expression, long nanos, boolean failed);
+    }
+
+    // A thread's JS context, the scope it evaluates in and the constant table bound into it
+    private static final class Slot {
+        final Context context = newContext();
+        final Value bindings = context.getBindings("js");
+        EvaluationScope scope;
+        ConstantTable bound;
+
+        void bind(ConstantTable table) {
+            if (bound != null) {
+                bound.values().keySet().forEach(bindings::removeMember);
+            }
+            if (table != null) {
+                table.values().forEach(bindings::putMember);
+            }
+            bound = table;
+        }
+    }
+
+    private static Context newContext() {
+        return Context.newBuilder("js")
+                .engine(engine)
                 .allowHostAccess(HostAccess.ALL)  // Allow all Java method calls
                 .allowHostClassLookup((Predicate<String>) s -> true)  // Allow Java.type() for any class
                 .build();
     }
 
+    /**
+     * Makes the calling thread evaluate within a scope (e.g., for the duration of a run or of a
+     * reaction lane). Only this thread is affected.
+     * @param scope the scope, or null for plain evaluation
+     * @return the thread's previous scope (for restoring)
+     */
+    public static EvaluationScope enter(EvaluationScope scope) {
+        Slot slot = slots.get();
+        EvaluationScope previous = slot.scope;
+        slot.scope = scope;
+        return previous;
+    }
+
+    /**
+     * @return the calling thread's scope, or null outside any run
+     */
+    public static EvaluationScope currentScope() {
+        return slots.get().scope;
+    }
+
     /**
      * Evaluates an expression with variable substitution from context.
      * @param expression the JS-like string (e.g., "$a + $b * 2 > 10")
@@ -33,24 +94,72 @@ public class ExpressionEvaluator {
      * @throws RuntimeException if eval fails (e.g., syntax or reference error)
      */
     public static Object evaluate(String expression, Map<String, Object> evalContext) {
-        logger.debug("Evaluating expression: '{}' with context keys: {}", expression, evalContext.keySet());
-        // Strip $ from expression for JS vars
-        String resolvedExpr = expression.replaceAll("\\$(\\w+)", "$1");
+        return evaluate(expression, evalContext, null);
+    }
+
+    /**
+     * Evaluates an expression, attributing it to its sheet/tab/entity type when profiling.
+     * @param expression the JS-like string
+     * @param evalContext map of var names to values (without $ prefix)
+     * @param origin where the expression was authored, or null if unknown
+     * @return evaluated result (Number, Boolean, etc.)
+     * @throws RuntimeException if eval fails (e.g., syntax or reference error)
+     */
+    public static Object evaluate(String expression, Map<String, Object> evalContext, ExpressionOrigin origin) {
+        Slot slot = slots.get();
+        EvaluationScope scope = slot.scope;
+        ConstantTable table = scope == null ? null : scope.getConstants();
+        if (slot.bound != table) {
+            slot.bind(table);
+        }
+        String resolvedExpr = null;
+        if (table != null) {
+            ExpressionSpecializer.Specialized specialized = table.specialize(expression, slot.context);
+            if (!specialized.isShadowedBy(evalContext)) {
+                resolvedExpr = specialized.source();
+            }
+        }
+        if (resolvedExpr == null) {
+            // Strip $ from expression for JS vars (not inside quoted strings)
+            resolvedExpr = resolvedSources.computeIfAbsent(expression, ExpressionSpecializer::stripVars);
+        }
 
+        Context context = slot.context;
+        Value bindings = slot.bindings;
         // Bind each entry directly to JS global scope
         for (Map.Entry<String, Object> entry : evalContext.entrySet()) {
-            context.getBindings("js").putMember(entry.getKey(), entry.getValue());
+            bindings.putMember(entry.getKey(), entry.getValue());
         }
 
+        EvaluationListener l = scope == null ? null : scope.getListener();
+        ExpressionProfiler p = scope == null ? null : scope.getProfiler();
+        long start = l != null || p != null ? System.nanoTime() : 0L;
+        boolean failed = true;
         try {
             Value result = context.eval("js", resolvedExpr);
+            failed = false;
             return result.as(Object.class);  // Convert to Java type
         } catch (Exception e) {
             logger.error("Failed to evaluate expression: {}", expression, e);
             throw e;
         } finally {
-            // Clean up bindings to avoid leaks
-            evalContext.keySet().forEach(key -> context.getBindings("js").removeMember(key));
+            // Clean up bindings to avoid leaks, restoring any constant a context entry shadowed
+            for (String key : evalContext.keySet()) {
+                if (table != null && table.isConstant(key)) {
+                    bindings.putMember(key, table.values().get(key));
+                } else {
+                    bindings.removeMember(key);
+                }
+            }
+            if (l != null || p != null) {
+                long nanos = System.nanoTime() - start;
+                if (l != null) {
+                    l.onEvaluated(expression, nanos, failed);
+                }
+                if (p != null) {
+                    p.record(expression, origin, nanos, failed);
+                }
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.christophe.simulator.utils;
+
+/**
+ * Where an expression was authored: spreadsheet, tab and entity type.
+ * @param sheet spreadsheet file (e.g., "Cow.xlsx")
+ * @param tab tab name (e.g., "DerivedAttributes", "States", "Actions")
+ * @param entityType entity type owning the expression
+ */
+public record ExpressionOrigin(String sheet, String tab, String entityType) {
+
+    /**
+     * Origin for an entity's own sheet (filename = entity class, per discovery rules).
+     * @param entityType the entity type
+     * @param tab the tab name
+     * @return the origin
+     */
+    public static ExpressionOrigin ofEntity(String entityType, String tab) {
+        return new ExpressionOrigin(entityType + ".xlsx", tab, entityType);
+    }
+
+    @Override
+    public String toString() {
+        return sheet + "!" + tab + " (" + entityType + ")";
+    }
+}
@@ -0,0 +1,142 @@
+package com.christophe.simulator.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Opt-in profiler for sheet formulas: call count, total/max time and failures per distinct
+ * expression source, plus the sheets/tabs/entity types it came from. Enable through
+ * EvaluationScope.setProfiler (or Simulator.enableExpressionProfiling) and read the ranked
+ * report to find slow Actions/DerivedAttributes formulas.
+ */
+public class ExpressionProfiler {
+    private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private static final class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder failures = new LongAdder();
+        final Set<ExpressionOrigin> origins = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Profile of one expression source.
+     * @param expression the expression as written in the sheet
+     * @param calls number of evaluations
+     * @param totalNanos summed evaluation time
+     * @param maxNanos slowest evaluation
+     * @param failures evaluations that threw
+     * @param origins sheets/tabs/entity types using this expression
+     */
+    public record Entry(String expression, long calls, long totalNanos, long maxNanos, long failures,
+                        List<ExpressionOrigin> origins) {
+        public double meanNanos() {
+            return calls == 0 ? 0.0 : (double) totalNanos / calls;
+        }
+    }
+
+    /**
+     * Records one evaluation.
+     * @param expression the expression source
+     * @param origin where it came from, or null if unknown
+     * @param nanos evaluation wall time
+     * @param failed whether evaluation threw
+     */
+    public void record(String expression, ExpressionOrigin origin, long nanos, boolean failed) {
+        Stats s = stats.get(expression);
+        if (s == null) {
+            s = stats.computeIfAbsent(expression, k -> new Stats());
+        }
+        s.calls.increment();
+        s.totalNanos.add(nanos);
+        s.maxNanos.accumulateAndGet(nanos, Math::max);
+        if (failed) {
+            s.failures.increment();
+        }
+        if (origin != null) {
+            s.origins.add(origin);
+        }
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Gets all profiled expressions, most expensive (total time) first.
+     * @return ranked entries
+     */
+    public List<Entry> ranked() {
+        List<Entry> entries = new ArrayList<>();
+        stats.forEach((expression, s) -> entries.add(new Entry(expression, s.calls.sum(), s.totalNanos.sum(),
+                s.maxNanos.get(), s.failures.sum(), sortedOrigins(s.origins))));
+        entries.sort(Comparator.comparingLong(Entry::totalNanos).reversed()
+                .thenComparing(Entry::expression));
+        return entries;
+    }
+
+    private static List<ExpressionOrigin> sortedOrigins(Set<ExpressionOrigin> origins) {
+        Set<ExpressionOrigin> sorted = new TreeSet<>(Comparator.comparing(ExpressionOrigin::toString));
+        sorted.addAll(origins);
+        return List.copyOf(sorted);
+    }
+
+    /**
+     * Writes the ranked report as a tab-separated table. Backslashes, tabs and line breaks in
+     * fields are escaped as \\, \t, \n and \r so every row keeps its columns.
+     * @param out destination (not closed)
+     * @throws IOException on write failure
+     */
+    public void writeReport(Writer out) throws IOException {
+        out.write("rank\tcalls\ttotal_ms\tmean_us\tmax_us\tfailures\torigins\texpression\n");
+        int rank = 1;
+        for (Entry e : ranked()) {
+            String origins = e.origins().isEmpty() ? "-"
+                    : e.origins().stream().map(ExpressionOrigin::toString).collect(Collectors.joining("; "));
+            out.write(String.format(Locale.ROOT, "%d\t%d\t%.3f\t%.3f\t%.3f\t%d\t%s\t%s%n", rank++, e.calls(),
+                    e.totalNanos() / 1e6, e.meanNanos() / 1e3, e.maxNanos() / 1e3, e.failures(), escape(origins),
+                    escape(e.expression())));
+        }
+    }
+
+    private static String escape(String field) {
+        StringBuilder out = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the ranked report to a file, replacing it if present.
+     * @param file destination path
+     * @throws IOException on write failure
+     */
+    public void writeReport(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeReport(writer);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.christophe.simulator.utils;
+
+import org.graalvm.polyglot.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites an expression against frozen constants: $refs to inlinable constants become literals,
+ * then parenthesized groups of pure literal arithmetic (e.g., "(1 + 0.2)") are folded by
+ * evaluating them once. Only values whose literal evaluates to the same Java type are inlined:
+ * non-integral doubles and booleans. GraalJS treats host longs and whole doubles as doubles but
+ * parses "100" as an int, so those stay bound instead. Quoted strings ('...' or "...") are code
+ * the modeller wrote as text, so neither step looks inside them.
+ */
+final class ExpressionSpecializer {
+    private static final Logger logger = LoggerFactory.getLogger(ExpressionSpecializer.class);
+
+    private static final Pattern VAR = Pattern.compile("\\$(\\w+)");
+    private static final String NUM = "(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][-+]?\\d+)?";
+    private static final String OPERAND = "(?:\\(\\s*-?" + NUM + "\\s*\\)|" + NUM + ")";
+    private static final String ARITHMETIC = "\\s*[-+]?\\s*" + OPERAND + "(?:\\s*(?:[-+*/%]|\\*\\*)\\s*[-+]?\\s*" + OPERAND + ")+\\s*";
+    private static final Pattern FOLDABLE_GROUP = Pattern.compile("\\((" + ARITHMETIC + ")\\)");
+    private static final Pattern FOLDABLE_WHOLE = Pattern.compile(ARITHMETIC);
+
+    /**
+     * An expression rewritten against a ConstantTable.
+     * @param source JS source to evaluate
+     * @param inlined constants replaced by literals (a context binding one of them shadows it)
+     */
+    record Specialized(String source, Set<String> inlined) {
+        boolean isShadowedBy(Map<String, Object> evalContext) {
+            for (String name : inlined) {
+                if (evalContext.containsKey(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private ExpressionSpecializer() {
+    }
+
+    /**
+     * Gets the JS literal for a constant value, if inlining it keeps evaluation results identical.
+     * @param value the constant
+     * @return the literal (parenthesized), or null to keep it bound
+     */
+    static String literalOf(Object value) {
+        if (value instanceof Boolean b) {
+            return b.toString();
+        }
+        if ((value instanceof Double || value instanceof Float) && isFractional(((Number) value).doubleValue())) {
+            return "(" + ((Number) value).doubleValue() + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Turns $refs into plain JS identifiers, outside quoted strings (the unspecialized form).
+     * @param expression the expression as written
+     * @return its JS source
+     */
+    static String stripVars(String expression) {
+        return rewriteCode(expression, code -> VAR.matcher(code).replaceAll("$1"));
+    }
+
+    static Specialized specialize(String expression, ConstantTable constants, Context context) {
+        Set<String> inlined = new TreeSet<>();
+        String source = rewriteCode(expression, code -> {
+            StringBuilder out = new StringBuilder(code.length());
+            Matcher m = VAR.matcher(code);
+            while (m.find()) {
+                String literal = constants.literal(m.group(1));
+                if (literal != null) {
+                    inlined.add(m.group(1));
+                }
+                m.appendReplacement(out, Matcher.quoteReplacement(literal != null ? literal : m.group(1)));
+            }
+            m.appendTail(out);
+            return out.toString();
+        });
+        source = rewriteCode(source, code -> foldGroups(code, context));
+        if (FOLDABLE_WHOLE.matcher(source).matches()) {  // Never matches text with quotes
+            String folded = evaluateLiteral(source, context);
+            if (folded != null) {
+                source = folded;
+            }
+        }
+        if (!source.equals(stripVars(expression))) {
+            logger.debug("Specialized '{}' as '{}'", expression, source);
+        }
+        return new Specialized(source, Set.copyOf(inlined));
+    }
+
+    // Applies rewrite to each stretch of code between quoted strings, copying the strings as written
+    private static String rewriteCode(String source, UnaryOperator<String> rewrite) {
+        StringBuilder out = new StringBuilder(source.length());
+        int codeStart = 0;
+        int i = 0;
+        while (i < source.length()) {
+            char quote = source.charAt(i);
+            if (quote != '\'' && quote != '"') {
+                i++;
+                continue;
+            }
+            out.append(rewrite.apply(source.substring(codeStart, i)));
+            int end = i + 1;
+            while (end < source.length() && source.charAt(end) != quote) {
+                end += source.charAt(end) == '\\' ? 2 : 1;  // Skip escaped characters
+            }
+            end = Math.min(end + 1, source.length());  // Unterminated: the rest is the string
+            out.append(source, i, end);
+            codeStart = end;
+            i = end;
+        }
+        out.append(rewrite.apply(source.substring(codeStart)));
+        return out.toString();
+    }
+
+    // Folds innermost literal groups until nothing changes
+    private static String foldGroups(String source, Context context) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Matcher m = FOLDABLE_GROUP.matcher(source);
+            StringBuilder out = new StringBuilder(source.length());
+            while (m.find()) {
+                String folded = evaluateLiteral(m.group(1), context);
+                if (folded != null && !folded.equals(m.group())) {
+                    m.appendReplacement(out, Matcher.quoteReplacement(folded));
+                    changed = true;
+                } else {
+                    m.appendReplacement(out, Matcher.quoteReplacement(m.group()));
+                }
+            }
+            m.appendTail(out);
+            source = out.toString();
+        }
+        return source;
+    }
+
+    // Evaluates pure literal arithmetic, or returns null if the result has no type-preserving literal
+    private static String evaluateLiteral(String arithmetic, Context context) {
+        Object value;
+        try {
+            value = context.eval("js", arithmetic).as(Object.class);
+        } catch (RuntimeException e) {
+            return null;  // Leave it to the real evaluation to report
+        }
+        if (value instanceof Integer i) {
+            return "(" + i + ")";
+        }
+        return value instanceof Double d && isFractional(d) ? "(" + d + ")" : null;
+    }
+
+    private static boolean isFractional(double d) {
+        return Double.isFinite(d) && d != Math.rint(d);
+    }
+}
@@ -0,0 +1,86 @@
+package com.christophe.simulator.utils;
+
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-run random numbers for stochastic models. One seed drives independent streams per entity
+ * and per worker; each stream's seed depends only on (run seed, entity ID or worker index), so
+ * results do not depend on creation or execution order and stay reproducible in parallel runs.
+ */
+public class RandomService {
+    public static final long DEFAULT_SEED = 0x5EED_C0FFEEL;
+
+    private static final long ENTITY_SALT = 0x243F6A8885A308D3L;
+    private static final long WORKER_SALT = 0x13198A2E03707344L;
+
+    private final long seed;
+    private final ConcurrentHashMap<String, RandomStream> entityStreams = new ConcurrentHashMap<>();
+    private final RandomStream global;
+
+    public RandomService(long seed) {
+        this.seed = seed;
+        this.global = new RandomStream(mix(seed));
+    }
+
+    @HostAccess.Export
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Stream for run-level draws not owned by an entity (e.g., event contexts).
+     * @return the shared global stream
+     */
+    @HostAccess.Export
+    public RandomStream global() {
+        return global;
+    }
+
+    /**
+     * Gets the stream owned by an entity, creating it on first use.
+     * @param entityId the entity ID
+     * @return the entity's stream (same instance on every call)
+     */
+    @HostAccess.Export
+    public RandomStream forEntity(String entityId) {
+        RandomStream stream = entityStreams.get(entityId);
+        return stream != null ? stream : entityStreams.computeIfAbsent(entityId,
+                id -> new RandomStream(mix(seed ^ mix(hash(id) + ENTITY_SALT))));
+    }
+
+    /**
+     * Creates a fresh stream for a worker thread; callers keep it for the worker's lifetime.
+     * @param workerIndex the worker index (0-based)
+     * @return a new stream seeded from the run seed and worker index
+     */
+    public RandomStream forWorker(int workerIndex) {
+        return new RandomStream(mix(seed ^ mix(workerIndex + WORKER_SALT)));
+    }
+
+    /**
+     * Forgets an entity's stream (e.g., on destruction).
+     * @param entityId the entity ID
+     */
+    public void release(String entityId) {
+        entityStreams.remove(entityId);
+    }
+
+    // 64-bit FNV-1a, stable across JVMs (unlike identity hashes)
+    private static long hash(String s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,141 @@
+package com.christophe.simulator.utils;
+
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Seeded random stream with fast samplers for common distributions, bound to expressions as
+ * $random. Not thread-safe: each entity and worker gets its own stream from RandomService.
+ */
+public class RandomStream {
+    private static final double[] LOG_FACTORIAL = new double[10];
+
+    static {
+        for (int k = 1; k < LOG_FACTORIAL.length; k++) {
+            LOG_FACTORIAL[k] = LOG_FACTORIAL[k - 1] + Math.log(k);
+        }
+    }
+
+    private final SplittableRandom rng;
+
+    public RandomStream(long seed) {
+        this.rng = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return uniform double in [0, 1)
+     */
+    @HostAccess.Export
+    public double nextDouble() {
+        return rng.nextDouble();
+    }
+
+    /**
+     * @param min inclusive lower bound
+     * @param max exclusive upper bound
+     * @return uniform double in [min, max)
+     */
+    @HostAccess.Export
+    public double uniform(double min, double max) {
+        return min + (max - min) * rng.nextDouble();
+    }
+
+    /**
+     * @param p probability of true
+     * @return true with probability p
+     */
+    @HostAccess.Export
+    public boolean bernoulli(double p) {
+        return rng.nextDouble() < p;
+    }
+
+    /**
+     * Normal sample (ziggurat via RandomGenerator.nextGaussian).
+     * @param mean distribution mean
+     * @param stdDev standard deviation
+     * @return normal sample
+     */
+    @HostAccess.Export
+    public double normal(double mean, double stdDev) {
+        return rng.nextGaussian(mean, stdDev);
+    }
+
+    /**
+     * Poisson sample: multiplication method for small means, PTRS transformed rejection
+     * (Hörmann 1993) otherwise, so cost stays constant for large means.
+     * @param mean distribution mean (lambda), non-negative
+     * @return non-negative count
+     */
+    @HostAccess.Export
+    public long poisson(double mean) {
+        if (mean < 0 || Double.isNaN(mean)) {
+            throw new IllegalArgumentException("Poisson mean must be non-negative: " + mean);
+        }
+        if (mean < 10) {
+            double limit = Math.exp(-mean);
+            double product = rng.nextDouble();
+            long k = 0;
+            while (product > limit) {
+                product *= rng.nextDouble();
+                k++;
+            }
+            return k;
+        }
+        double sqrtMean = Math.sqrt(mean);
+        double logMean = Math.log(mean);
+        double b = 0.931 + 2.53 * sqrtMean;
+        double a = -0.059 + 0.02483 * b;
+        double invAlpha = 1.1239 + 1.1328 / (b - 3.4);
+        double vr = 0.9277 - 3.6224 / (b - 2);
+        while (true) {
+            double u = rng.nextDouble() - 0.5;
+            double v = rng.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            long k = (long) Math.floor((2 * a / us + b) * u + mean + 0.43);
+            if (us >= 0.07 && v <= vr) {
+                return k;
+            }
+            if (k < 0 || (us < 0.013 && v > us)) {
+                continue;
+            }
+            if (Math.log(v * invAlpha / (a / (us * us) + b)) <= -mean + k * logMean - logFactorial(k)) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * Triangular sample by inverse CDF.
+     * @param min lower limit
+     * @param mode most likely value
+     * @param max upper limit
+     * @return sample in [min, max]
+     */
+    @HostAccess.Export
+    public double triangular(double min, double mode, double max) {
+        if (!(min <= mode && mode <= max)) {
+            throw new IllegalArgumentException("Triangular requires min <= mode <= max");
+        }
+        double range = max - min;
+        if (range == 0) {
+            return min;
+        }
+        double u = rng.nextDouble();
+        if (u < (mode - min) / range) {
+            return min + Math.sqrt(u * range * (mode - min));
+        }
+        return max - Math.sqrt((1 - u) * range * (max - mode));
+    }
+
+    // Exact for small k, Stirling series otherwise
+    private static double logFactorial(long k) {
+        if (k < LOG_FACTORIAL.length) {
+            return LOG_FACTORIAL[(int) k];
+        }
+        double x = k + 1.0;
+        double inv = 1.0 / x;
+        return (x - 0.5) * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI)
+                + inv / 12.0 - inv * inv * inv / 360.0;
+    }
+}
@@ -0,0 +1,127 @@
+package com.christophe.simulator.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns strings (event types, entity IDs) to dense int IDs so hot structures can carry
+ * primitives instead of references. Lookups (find, name) are lock-free, so reaction workers can
+ * resolve IDs without contending with the engine thread.
+ * Names that come and go (entity IDs) can be reference counted: holders retain and release an
+ * ID, retire marks the name as dead, and its slot is reused once no holder references it.
+ * Names that are never retired keep their ID for the table's lifetime.
+ */
+public class SymbolTable {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];  // Republished after every write
+    private int[] refs = new int[16];  // Guarded by this
+    private boolean[] retired = new boolean[16];  // Guarded by this
+    private int[] free = new int[16];  // Released slots, guarded by this
+    private int freeCount;
+    private int nextId;
+
+    /**
+     * Gets the ID for a name, assigning a free one on first use.
+     * @param name the string to intern (non-null)
+     * @return its dense ID
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;  // Possibly retired: still valid while referenced, re-interned once freed
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            int slot = freeCount > 0 ? free[--freeCount] : nextId++;
+            ensureCapacity(slot + 1);
+            String[] current = names;
+            current[slot] = name;
+            names = current;  // Volatile write publishes the new entry to lock-free readers
+            ids.put(name, slot);
+            return slot;
+        }
+    }
+
+    /**
+     * Looks up an ID without interning.
+     * @param name the string
+     * @return its ID, or -1 if never interned (or freed)
+     */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Resolves an ID back to its string.
+     * @param id a value returned by intern, still referenced by the caller
+     * @return the interned string
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Adds a reference to an ID, keeping its slot alive after the name is retired.
+     * @param id an interned ID
+     */
+    public synchronized void retain(int id) {
+        refs[id]++;
+    }
+
+    /**
+     * Drops a reference taken with retain, freeing the slot if the name was retired.
+     * @param id an interned ID
+     */
+    public synchronized void release(int id) {
+        if (--refs[id] == 0 && retired[id]) {
+            freeSlot(id);
+        }
+    }
+
+    /**
+     * Marks a name as no longer in use (e.g., its entity was destroyed). Its slot is reused as
+     * soon as no reference remains.
+     * @param name the string
+     */
+    public synchronized void retire(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            return;
+        }
+        if (refs[id] == 0) {
+            freeSlot(id);
+        } else {
+            retired[id] = true;
+        }
+    }
+
+    private void freeSlot(int id) {
+        String[] current = names;
+        ids.remove(current[id]);
+        current[id] = null;
+        names = current;
+        retired[id] = false;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCount++] = id;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= refs.length) {
+            return;
+        }
+        int grown = Math.max(capacity, refs.length * 2);
+        refs = Arrays.copyOf(refs, grown);
+        retired = Arrays.copyOf(retired, grown);
+        names = Arrays.copyOf(names, grown);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
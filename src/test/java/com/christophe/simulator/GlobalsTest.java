@@ -0,0 +1,32 @@
+package com.christophe.simulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GlobalsTest {
+
+    @Test
+    void testReportsOnlyActualChanges() {
+        Globals globals = new Globals();
+        AtomicInteger changes = new AtomicInteger();
+        globals.setChangeListener(changes::incrementAndGet);
+
+        globals.put("tax_rate", 0.2);
+        globals.put("tax_rate", 0.2);  // Same value
+        assertEquals(1, changes.get());
+        globals.put("tax_rate", 0.3);
+        globals.put("blank", null);  // New key, even with a null value
+        globals.put("blank", null);
+        assertEquals(3, changes.get());
+
+        globals.remove("missing");
+        globals.remove("blank");
+        assertEquals(4, changes.get());
+        globals.clear();
+        globals.clear();  // Already empty
+        assertEquals(5, changes.get());
+    }
+}
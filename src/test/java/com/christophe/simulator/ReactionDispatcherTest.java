@@ -0,0 +1,140 @@
+package com.christophe.simulator;
+
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.entities.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactionDispatcherTest {
+
+    @Test
+    void testParallelDispatchMatchesSerial() {
+        Map<String, Map<String, Object>> serial = runHerd(1, new SimulationListener() { });
+        Map<String, Map<String, Object>> parallel = runHerd(4, new SimulationListener() { });
+        assertEquals(serial, parallel);
+        assertEquals(5L * 3, ((List<?>) serial.get("l1").get("seen")).size());  // 3 rounds of 5 sources
+    }
+
+    @Test
+    void testParallelSideEffectsReplayInSerialOrder() {
+        List<String> serial = new ArrayList<>();
+        List<String> parallel = new ArrayList<>();
+        runHerd(1, recorder(serial));
+        runHerd(4, recorder(parallel));
+        assertEquals(serial, parallel);  // Same callbacks, same order, all on the engine thread
+        assertEquals(5 * 3 * 21, parallel.stream().filter(s -> s.startsWith("action")).count());
+    }
+
+    @Test
+    void testSameEntityReactionsKeepDispatchOrder() {
+        List<Object> logs = new ArrayList<>();
+        for (int parallelism : new int[]{1, 4}) {
+            Simulator sim = new Simulator();
+            sim.setParallelism(parallelism);
+            // Two local actions writing the same attribute: no attribute sets, the entity's lane orders them
+            BaseEntity cow = new BaseEntity("c1", "Cow");
+            cow.setAttribute("log", "");
+            cow.setAttribute("actions", List.of(
+                    Map.of("actionName", "A", "trigger", "Feeder.Fed", "effect", "attr.setAttribute('log', attr.getAttribute('log') + 'a' + $notified_entity_id)"),
+                    Map.of("actionName", "B", "trigger", "Feeder.Fed", "effect", "attr.setAttribute('log', attr.getAttribute('log') + 'b' + $notified_entity_id)")));
+            sim.addEntity(cow);
+            sim.addEntity(new BaseEntity("c2", "Cow"));  // A second lane, so the batch runs on workers
+            sim.entities.get("c2").setAttribute("actions", List.of(Map.of(
+                    "actionName", "A", "trigger", "Feeder.Fed", "effect", "attr.setAttribute('fed', true)")));
+            for (int f = 0; f < 3; f++) {
+                sim.scheduleNotification(1, "Feeder.Fed", String.valueOf(f));
+            }
+            sim.run(1);
+            sim.close();
+            assertTrue(((String) cow.getAttribute("log")).matches("(a(\\d)b\\2){3}"));  // Each event's A then B
+            logs.add(cow.getAttribute("log"));
+        }
+        assertEquals(logs.get(0), logs.get(1));
+    }
+
+    @Test
+    void testActionsChangedAfterAddAreReindexed() {
+        Simulator sim = new Simulator();
+        BaseEntity ledger = new BaseEntity("l1", "Ledger");
+        ledger.setAttribute("seen", new ArrayList<>());
+        sim.addEntity(ledger);
+        ledger.setAttribute("actions", List.of(Map.of(
+                "actionName", "Record", "trigger", "Feeder.Fed", "effect", "attr.addToList('seen', $notified_entity_id)")));
+        sim.scheduleNotification(1, "Feeder.Fed", "f1");
+        sim.run(1);
+        assertEquals(List.of("f1"), ledger.getAttribute("seen"));
+
+        Map<String, Object> replaced = new HashMap<>(ledger.getAttributes());
+        replaced.put("actions", List.of(Map.of(
+                "actionName", "Record", "trigger", "Feeder.Emptied", "effect", "attr.addToList('seen', $notified_entity_id)")));
+        ledger.setAttributes(replaced);
+        sim.scheduleNotification(2, "Feeder.Fed", "f2");
+        sim.scheduleNotification(2, "Feeder.Emptied", "f3");
+        sim.run(2);
+        assertEquals(List.of("f1", "f3"), ledger.getAttribute("seen"));  // Old trigger dropped, new one indexed
+    }
+
+    private static SimulationListener recorder(List<String> calls) {
+        Thread engine = Thread.currentThread();
+        return new SimulationListener() {
+            @Override
+            public void onActionHandled(BaseEntity entity, String actionName, Event event) {
+                record("action " + entity.getId() + " " + actionName + " " + event.getSourceEntityId());
+            }
+
+            @Override
+            public void onAttributeChanged(BaseEntity entity, String attributeName) {
+                record("set " + entity.getId() + "." + attributeName);
+            }
+
+            private void record(String call) {
+                calls.add(Thread.currentThread() == engine ? call : call + " off engine thread");
+            }
+        };
+    }
+
+    private static Map<String, Map<String, Object>> runHerd(int parallelism, SimulationListener listener) {
+        Simulator sim = new Simulator();
+        sim.setParallelism(parallelism);
+        // Local reactions: each cow tallies feedings on itself
+        for (int i = 0; i < 20; i++) {
+            BaseEntity cow = new BaseEntity("c" + i, "Cow");
+            cow.setAttribute("weight", 100.0);
+            cow.setAttribute("actions", List.of(Map.of(
+                    "actionName", "Eat",
+                    "trigger", "Feeder.Fed",
+                    "effect", "attr.setAttribute('weight', attr.getAttribute('weight') + $weight * 0.01)")));
+            sim.addEntity(cow);
+        }
+        // Global reaction: the ledger reaches the simulator, so it must observe serial order
+        BaseEntity ledger = new BaseEntity("l1", "Ledger");
+        ledger.setAttribute("seen", new ArrayList<>());
+        ledger.setAttribute("actions", List.of(Map.of(
+                "actionName", "Record",
+                "trigger", "Feeder.Fed",
+                "effect", "attr.addToList('seen', $notified_entity_id + '@' + simulator.getCurrentTick())")));
+        sim.addEntity(ledger);
+        sim.addListener(listener);
+        for (long tick = 1; tick <= 3; tick++) {
+            for (int f = 0; f < 5; f++) {
+                sim.scheduleNotification(tick, "Feeder.Fed", "f" + f);
+            }
+        }
+        sim.run(3);
+        Map<String, Map<String, Object>> state = new HashMap<>();
+        sim.entities.forEach((id, entity) -> {
+            Map<String, Object> attrs = new HashMap<>(entity.getAttributes());
+            attrs.remove("actions");
+            state.put(id, attrs);
+        });
+        sim.close();  // Release worker threads
+        return state;
+    }
+}
@@ -1,14 +1,30 @@
 package com.christophe.simulator;
 
 import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.entities.EntityContainer;
 import com.christophe.simulator.loader.SheetsLoader;
+import com.christophe.simulator.metrics.EngineMetrics;
+import com.christophe.simulator.metrics.MetricsSnapshot;
+import com.christophe.simulator.utils.ExpressionEvaluator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SimulatorTest {
     private Simulator simulator;
@@ -24,9 +40,9 @@ class SimulatorTest {
         loader.load(simulator);
         simulator.run(90);
         BaseEntity slaughter = simulator.entities.get("s1");
-        List<String> queue = (List<String>) slaughter.getAttribute("queue");
+        EntityContainer queue = slaughter.getContainer("queue");
         assertEquals(1, queue.size());  // Assuming one Cow matured
-        assertEquals("c1", queue.get(0));
+        assertEquals("c1", queue.peek());
         BaseEntity payRoll = simulator.entities.get("p1");
         assertEquals(9000.0, payRoll.getAttribute("expenses"));
         List<Object> entries = (List<Object>) payRoll.getAttribute("entries");
@@ -35,6 +51,163 @@ class SimulatorTest {
         assertEquals(4200.0, payRoll.getAttribute("net_profit"));  // Derived after updates
     }
 
+    @Test
+    void testRunRecordsMetrics() {
+        new SheetsLoader().load(simulator);
+        simulator.run(30);
+        MetricsSnapshot metrics = simulator.getMetrics().snapshot();
+        assertTrue(metrics.ticks() > 0);
+        assertEquals(1L, metrics.entitiesByType().get("Cow"));
+        assertEquals(metrics.ticks(), metrics.phases().get(EngineMetrics.Phase.DERIVED).count());
+        assertTrue(metrics.expressionEvaluations().containsKey("$current_tick / 30"));
+    }
+
+    @Test
+    void testExpressionProfilingReport(@TempDir Path tempDir) throws Exception {
+        Path report = tempDir.resolve("expressions.tsv");
+        new SheetsLoader().load(simulator);
+        simulator.enableExpressionProfiling(report);
+        simulator.run(30);
+        List<String> lines = Files.readAllLines(report);
+        assertTrue(lines.size() > 1);
+        assertTrue(lines.stream().anyMatch(l -> l.contains("Cow.xlsx!DerivedAttributes (Cow)")));
+    }
+
+    @Test
+    void testListenerReceivesLifecycleAndTransitions() {
+        List<String> seen = new ArrayList<>();
+        simulator.addListener(new SimulationListener() {
+            @Override
+            public void onEntityAdded(BaseEntity entity) {
+                seen.add("added " + entity.getId());
+            }
+
+            @Override
+            public void onStateTransition(BaseEntity entity, String fromState, String toState, long tick) {
+                seen.add(entity.getId() + " " + fromState + "->" + toState);
+            }
+
+            @Override
+            public void onEntityDestroyed(BaseEntity entity) {
+                seen.add("destroyed " + entity.getId());
+            }
+        });
+        new SheetsLoader().load(simulator);
+        simulator.run(90);
+        simulator.destroyEntity("c1");
+        assertTrue(seen.contains("added c1"));
+        assertTrue(seen.contains("c1 Calf->Mature"));
+        assertEquals("destroyed c1", seen.get(seen.size() - 1));
+    }
+
+    @Test
+    void testGlobalsFrozenDuringRunAndRefrozenOnMutation() {
+        new SheetsLoader().load(simulator);
+        simulator.destroyEntity("f1");  // No salaries: expenses only change below
+        simulator.addListener(new SimulationListener() {
+            @Override
+            public void onTickStarted(long tick, int queueSize) {
+                if (tick == 45) {
+                    simulator.globals.put("tax_rate", 0.5);
+                }
+            }
+        });
+        simulator.run(30);
+        assertEquals(15000.0, simulator.entities.get("p1").getAttribute("net_profit"));
+        simulator.entities.get("p1").setAttribute("expenses", 1000.0);
+        simulator.run(60);
+        assertEquals(0.5, simulator.globals.get("tax_rate"));
+        assertEquals(13500.0, simulator.entities.get("p1").getAttribute("net_profit"));  // Uses the new rate
+        assertNull(ExpressionEvaluator.currentScope());  // Left after run
+    }
+
+    @Test
+    void testConcurrentSimulatorsKeepTheirOwnGlobals() throws Exception {
+        Set<Object> seenA = ConcurrentHashMap.newKeySet();
+        Set<Object> seenB = ConcurrentHashMap.newKeySet();
+        Set<String> evaluatedA = ConcurrentHashMap.newKeySet();
+        Set<String> evaluatedB = ConcurrentHashMap.newKeySet();
+        CyclicBarrier start = new CyclicBarrier(2);
+        Thread a = new Thread(() -> runWithRate(0.25, "$tax_rate", seenA, evaluatedA, start));
+        Thread b = new Thread(() -> runWithRate(0.75, "$tax_rate * 1", seenB, evaluatedB, start));
+        a.start();
+        b.start();
+        a.join();
+        b.join();
+        assertEquals(Set.of(0.25), seenA);
+        assertEquals(Set.of(0.75), seenB);
+        assertEquals(Set.of("$tax_rate"), evaluatedA);  // Metrics and profiles cover only their own simulator
+        assertEquals(Set.of("$tax_rate * 1"), evaluatedB);
+    }
+
+    private static void runWithRate(double rate, String expression, Set<Object> seen, Set<String> evaluated,
+                                    CyclicBarrier start) {
+        for (int round = 0; round < 5; round++) {
+            Simulator sim = new Simulator();
+            sim.globals.put("tax_rate", rate);
+            BaseEntity entity = new BaseEntity("e1", "Test");
+            entity.setAttribute("derived_attributes", Map.of("rate", expression));
+            sim.addEntity(entity);
+            sim.addListener(new SimulationListener() {
+                @Override
+                public void onTickCompleted(long tick) {
+                    seen.add(entity.getAttribute("rate"));
+                }
+            });
+            try {
+                start.await();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            sim.enableExpressionProfiling(null);
+            sim.run(500);
+            evaluated.addAll(sim.getMetrics().getExpressionEvaluations().keySet());
+            sim.getExpressionProfiler().ranked().forEach(e -> evaluated.add(e.expression()));
+        }
+    }
+
+    @Test
+    void testTickActionWaitsForCycleLength() {
+        BaseEntity fromZero = tickEntity("e1", "attr.addToList('fired', $current_tick)", 10L);
+        BaseEntity fromStart = tickEntity("e2", "attr.addToList('fired', $current_tick)", 10L);
+        fromStart.setAttribute("start_tick", 5L);
+        simulator.addEntity(fromZero);
+        simulator.addEntity(fromStart);
+        simulator.run(30);
+        assertEquals(List.of(10L, 20L, 30L), fromZero.getAttribute("fired"));
+        assertEquals(List.of(15L, 25L), fromStart.getAttribute("fired"));
+        assertEquals(30L, fromZero.getAttribute("last_triggered"));
+    }
+
+    @Test
+    void testTickActionSkipsEntityDestroyedEarlierInTick() {
+        BaseEntity first = tickEntity("e1", "attr.setAttribute('fired', true); simulator.destroyEntity('e2')", null);
+        BaseEntity second = tickEntity("e2", "attr.setAttribute('fired', true); simulator.destroyEntity('e1')", null);
+        simulator.addEntity(first);
+        simulator.addEntity(second);
+        simulator.run(0);
+        // Whichever runs first destroys the other before its turn
+        assertEquals(1, (first.getAttribute("fired") == null ? 0 : 1) + (second.getAttribute("fired") == null ? 0 : 1));
+        assertEquals(1, simulator.entities.size());
+    }
+
+    @Test
+    void testTickActionErrorPropagates() {
+        simulator.addEntity(tickEntity("e1", "no_such_function()", null));
+        assertThrows(RuntimeException.class, () -> simulator.run(0));
+    }
+
+    private static BaseEntity tickEntity(String id, String effect, Long cycleLength) {
+        Map<String, Object> action = new HashMap<>();
+        action.put("actionName", "Tick");
+        action.put("trigger", "tick");
+        action.put("effect", effect);
+        action.put("cycle_length", cycleLength);
+        BaseEntity entity = new BaseEntity(id, "Test");
+        entity.setAttribute("actions", List.of(action));
+        return entity;
+    }
+
     @Test
     void testDestroyEntity() {
         BaseEntity entity = new BaseEntity("e1", "Test");
@@ -43,4 +216,32 @@ class SimulatorTest {
         assertNull(simulator.entities.get("e1"));
     }
 
+    @Test
+    void testDestroyEntityRemovesFromContainers() {
+        BaseEntity herd = new BaseEntity("h1", "Herd");
+        herd.setAttribute("capture_deletion", List.of(Map.of("type", "capture", "container", "cows", "maxCapacity", 5)));
+        simulator.addEntity(herd);
+        simulator.addEntity(new BaseEntity("c1", "Cow"));
+        herd.getContainer("cows").add("c1");
+        assertEquals(List.of(herd.getContainer("cows")), simulator.entities.get("c1").getContainedIn());
+
+        simulator.destroyEntity("c1");
+        assertTrue(herd.getContainer("cows").isEmpty());
+        assertFalse(simulator.getContainment().isContained("c1"));
+    }
+
+    @Test
+    void testContainerRejectsWrongEntityType() {
+        BaseEntity herd = new BaseEntity("h1", "Herd");
+        herd.setAttribute("capture_deletion", List.of(Map.of("type", "capture", "container", "cows",
+                "targetEntityType", "Cow", "maxCapacity", 5)));
+        simulator.addEntity(herd);
+        simulator.addEntity(new BaseEntity("c1", "Cow"));
+        simulator.addEntity(new BaseEntity("f1", "Farmer"));
+        assertTrue(herd.getContainer("cows").add("c1"));
+        assertFalse(herd.getContainer("cows").add("f1"));
+        assertEquals(List.of("c1"), herd.getContainer("cows").toList());
+        assertFalse(simulator.getContainment().isContained("f1"));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.christophe.simulator.aggregates;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.loader.SheetsLoader;
+import com.christophe.simulator.utils.ExpressionEvaluator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateViewTest {
+    private Simulator sim;
+
+    @BeforeEach
+    void setUp() {
+        sim = new Simulator();
+    }
+
+    private BaseEntity cow(String id, double weight, String state) {
+        BaseEntity cow = new BaseEntity(id, "Cow");
+        cow.setAttribute("weight", weight);
+        cow.setAttribute("current_state", state);
+        sim.addEntity(cow);
+        return cow;
+    }
+
+    @Test
+    void testIncrementalSumCountAndGroupBy() {
+        cow("c1", 100.0, "Calf");
+        AggregateView weight = sim.defineAggregate(AggregateDefinition.of("herd_weight", "Cow", AggregateDefinition.Function.SUM, "weight"));
+        AggregateView byState = sim.defineAggregate(AggregateDefinition.count("cows", "Cow").groupedByState());
+        assertEquals(100.0, weight.get());  // Seeded from existing entities
+
+        BaseEntity c2 = cow("c2", 250.0, "Calf");
+        sim.addEntity(new BaseEntity("f1", "Farmer"));
+        assertEquals(350.0, weight.get());
+        assertEquals(2.0, byState.get("Calf"));
+
+        c2.setAttribute("weight", 300.0);
+        c2.setAttribute("current_state", "Mature");
+        assertEquals(400.0, weight.get());
+        assertEquals(1.0, byState.get("Calf"));
+        assertEquals(1.0, byState.get("Mature"));
+
+        sim.destroyEntity("c1");
+        assertEquals(300.0, weight.get());
+        assertEquals(0.0, byState.get("Calf"));
+        assertEquals(1.0, byState.get());
+    }
+
+    @Test
+    void testMinMaxAvgWithStateFilter() {
+        AggregateView heaviest = sim.defineAggregate(AggregateDefinition.of("max", "Cow", AggregateDefinition.Function.MAX, "weight").inState("Mature"));
+        AggregateView lightest = sim.defineAggregate(AggregateDefinition.of("min", "Cow", AggregateDefinition.Function.MIN, "weight"));
+        AggregateView mean = sim.defineAggregate(AggregateDefinition.of("avg", "Cow", AggregateDefinition.Function.AVG, "weight"));
+        assertTrue(Double.isNaN(lightest.get()));
+
+        cow("c1", 400.0, "Mature");
+        BaseEntity c2 = cow("c2", 500.0, "Mature");
+        cow("c3", 100.0, "Calf");
+        assertEquals(500.0, heaviest.get());
+        assertEquals(100.0, lightest.get());
+        assertEquals(1000.0 / 3, mean.get(), 1e-9);
+
+        c2.setAttribute("current_state", "Sold");  // Leaves the filter
+        assertEquals(400.0, heaviest.get());
+        sim.destroyEntity("c3");
+        assertEquals(400.0, lightest.get());
+        assertThrows(IllegalStateException.class, () -> heaviest.get("Mature"));
+    }
+
+    @Test
+    void testRemotePartialsMergeIntoLookups() {
+        AggregateView heaviest = sim.defineAggregate(AggregateDefinition.of("max", "Cow", AggregateDefinition.Function.MAX, "weight"));
+        AggregateView byState = sim.defineAggregate(AggregateDefinition.count("cows", "Cow").groupedByState());
+        cow("c1", 400.0, "Calf");
+        AggregateView.Partial local = heaviest.partial();
+        assertEquals(1, local.members());
+
+        heaviest.setRemote(new AggregateView.Partial(2, 2, 1100.0, 500.0, 600.0), Map.of());
+        byState.setRemote(new AggregateView.Partial(3, 0, 0, Double.NaN, Double.NaN),
+                Map.of("Mature", new AggregateView.Partial(3, 0, 0, Double.NaN, Double.NaN)));
+        assertEquals(600.0, heaviest.get());
+        assertEquals(4.0, byState.get());
+        assertEquals(3.0, byState.get("Mature"));
+        assertEquals(1.0, byState.get("Calf"));
+        assertEquals(local, heaviest.partial());  // Partials stay local
+    }
+
+    @Test
+    void testLongRunSumMatchesRecomputedSum() {
+        AggregateView weight = sim.defineAggregate(AggregateDefinition.of("herd_weight", "Cow", AggregateDefinition.Function.SUM, "weight"));
+        AggregateView mean = sim.defineAggregate(AggregateDefinition.of("avg", "Cow", AggregateDefinition.Function.AVG, "weight"));
+        cow("giant", 1e16, "Mature");  // Swamps the low-order bits of every other update
+        BaseEntity[] herd = new BaseEntity[50];
+        for (int i = 0; i < herd.length; i++) {
+            herd[i] = cow("c" + i, 0.1 * i, "Calf");
+        }
+        Random random = new Random(42);
+        for (int step = 0; step < 100_000; step++) {
+            herd[random.nextInt(herd.length)].setAttribute("weight", random.nextDouble() * 1000);
+        }
+        sim.destroyEntity("giant");
+        BigDecimal exact = BigDecimal.ZERO;
+        for (BaseEntity cow : herd) {
+            exact = exact.add(new BigDecimal((Double) cow.getAttribute("weight")));
+        }
+        assertEquals(exact.doubleValue(), weight.get(), 1e-9);
+        assertEquals(exact.doubleValue() / herd.length, mean.get(), 1e-9);
+
+        for (BaseEntity cow : herd) {
+            sim.destroyEntity(cow.getId());
+        }
+        assertEquals(0.0, weight.get());  // Reset once empty, no leftover rounding
+    }
+
+    @Test
+    void testLookupFromExpressions() {
+        new SheetsLoader().load(sim);
+        sim.run(90);
+        assertEquals(1.0, sim.getAggregates().get("cows_by_state", "Mature"));
+        Object weight = ExpressionEvaluator.evaluate("aggregates.get('herd_weight')",
+                Map.of("aggregates", sim.getAggregates()));
+        assertEquals(sim.entities.get("c1").getAttribute("weight"), ((Number) weight).doubleValue());
+        assertThrows(IllegalArgumentException.class,
+                () -> sim.defineAggregate(AggregateDefinition.count("herd_weight", "Cow")));
+    }
+}
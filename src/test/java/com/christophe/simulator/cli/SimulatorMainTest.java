@@ -0,0 +1,32 @@
+package com.christophe.simulator.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatorMainTest {
+
+    @Test
+    void testRunPrintsSummary() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int code = SimulatorMain.run(new String[]{"--ticks", "95"}, new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertEquals(0, code);
+        String summary = out.toString(StandardCharsets.UTF_8);
+        assertTrue(summary.startsWith("Completed at tick 96: "), summary);
+        assertTrue(summary.contains("events applied"), summary);
+    }
+
+    @Test
+    void testBadArgumentsExitWithUsage() {
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        assertEquals(2, SimulatorMain.run(new String[]{"--ticks"}, out));
+        assertEquals(2, SimulatorMain.run(new String[]{"--ticks", "ten"}, out));
+        assertEquals(2, SimulatorMain.run(new String[]{"--verbose"}, out));
+        assertEquals(2, SimulatorMain.run(new String[]{"--ticks", "-1"}, out));
+        assertEquals(2, SimulatorMain.run(new String[]{"--parallelism", "0"}, out));
+    }
+}
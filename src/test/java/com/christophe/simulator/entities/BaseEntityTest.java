@@ -1,5 +1,6 @@
 package com.christophe.simulator.entities;
 
+import com.christophe.simulator.SimulationListener;
 import com.christophe.simulator.Simulator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -76,7 +77,7 @@ class BaseEntityTest {
         List<Map<String, Object>> actions = new ArrayList<>();
         Map<String, Object> action = new HashMap<>();
         action.put("trigger", "Cow.Maturity");
-        action.put("condition", "queue.size < $max_capacity");
+        action.put("condition", "queue.size() < $max_capacity");  // Call it: queue.size alone is a method reference
         action.put("effect", "attr.addToList('queue', $notified_entity_id)");
         actions.add(action);
         slaughter.setAttribute("actions", actions);
@@ -87,4 +88,30 @@ class BaseEntityTest {
         assertEquals(1, queue.size());
         assertEquals("c1", queue.get(0));
     }
+
+    @Test
+    void testTransitionNotifiesOnEntryToTargetState() throws Exception {
+        Simulator sim = new Simulator();
+        List<String> notified = new ArrayList<>();
+        sim.addListener(new SimulationListener() {
+            @Override
+            public void onEventEnqueued(Event event) {
+                notified.add(event.getType());
+            }
+        });
+        Map<String, Object> calf = new HashMap<>();
+        calf.put("stateName", "Calf");
+        calf.put("initial", true);
+        calf.put("nextStates", "Mature");
+        calf.put("conditionToNext", "true");
+        calf.put("notificationEvent", "Cow.Weaned");
+        Map<String, Object> mature = new HashMap<>();
+        mature.put("stateName", "Mature");
+        mature.put("notificationEvent", "Cow.Maturity");
+        entity.setAttribute("states", List.of(calf, mature));
+        entity.setAttribute("current_state", "Calf");
+        entity.updateStates(new HashMap<>(), sim);
+        assertEquals("Mature", entity.getAttribute("current_state"));
+        assertEquals(List.of("Cow.Maturity"), notified);  // Target's notification, not the state left
+    }
 }
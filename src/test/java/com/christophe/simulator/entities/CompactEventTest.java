@@ -0,0 +1,93 @@
+package com.christophe.simulator.entities;
+
+import com.christophe.simulator.Simulator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactEventTest {
+
+    @Test
+    void testInternedFieldsAndParams() {
+        EventPool pool = new EventPool();
+        CompactEvent event = pool.acquire(5, 1, "Cow.Maturity", "c1").addValue(250.0);
+        assertEquals(5, event.getTime());
+        assertEquals("Cow.Maturity", event.getType());
+        assertEquals(pool.getEventTypes().find("Cow.Maturity"), event.getTypeId());
+        assertEquals("c1", event.getSourceEntityId());
+        assertEquals(250.0, event.getValue(0));
+        assertEquals(Map.of("entity_id", "c1", "value0", 250.0), event.getParams());
+        assertThrows(IndexOutOfBoundsException.class, () -> event.getValue(1));
+    }
+
+    @Test
+    void testPoolReusesReleasedEvents() {
+        EventPool pool = new EventPool();
+        CompactEvent first = pool.acquire(1, 1, "Cow.Maturity", "c1");
+        pool.release(first);
+        CompactEvent second = pool.acquire(2, 1, "Farmer.SalaryDue", null);
+        assertSame(first, second);
+        assertEquals(1, pool.getCreatedCount());
+        assertNull(second.getSourceEntityId());  // Reinitialized
+        assertEquals(0, second.getValueCount());
+    }
+
+    @Test
+    void testDestroyedEntityIdsAreRecycledOncePendingEventsAreDone() {
+        Simulator sim = new Simulator();
+        EventPool pool = sim.getEventPool();
+        for (int i = 0; i < 50; i++) {
+            String id = "calf" + i;
+            sim.addEntity(new BaseEntity(id, "Cow"));
+            sim.scheduleNotification(100, "Cow.Maturity", id);
+            sim.destroyEntity(id);  // Its notification is still pending
+        }
+        assertEquals(50, pool.getEntityIds().size());
+        sim.run(100);
+        assertEquals(0, pool.getEntityIds().size());  // All released with their events
+
+        CompactEvent pending = pool.acquire(200, 1, "Cow.Maturity", "c1");
+        pool.retireEntity("c1");
+        CompactEvent other = pool.acquire(200, 1, "Cow.Maturity", "c2");
+        assertEquals("c1", pending.getSourceEntityId());  // Slot kept while referenced
+        assertNotEquals(pending.getSourceId(), other.getSourceId());
+        int freedSlot = pending.getSourceId();
+        pool.release(pending);
+        assertEquals(-1, pool.getEntityIds().find("c1"));
+        assertEquals(freedSlot, pool.getEntityIds().intern("c3"));  // Slot reused
+    }
+
+    @Test
+    void testOrderingMatchesBaseEvent() {
+        EventPool pool = new EventPool();
+        CompactEvent early = pool.acquire(3, 5, "A", null);
+        CompactEvent late = pool.acquire(10, 0, "B", null);
+        BaseEvent sameTick = new BaseEvent(10, 1, "C", null, null, null);
+        assertTrue(early.compareTo(late) < 0);
+        assertTrue(late.compareTo(sameTick) < 0);  // Same time, lower priority first
+    }
+
+    @Test
+    void testNotificationsAreRecycled() throws Exception {
+        Simulator sim = new Simulator();
+        BaseEntity slaughter = new BaseEntity("s1", "Slaughterhouse");
+        slaughter.setAttribute("actions", List.of(Map.of("trigger", "Cow.Maturity",
+                "effect", "attr.setAttribute('last', $notified_entity_id)")));
+        sim.addEntity(slaughter);
+        for (int i = 0; i < 100; i++) {
+            sim.enqueueNotification("Cow.Maturity", "c" + i);
+        }
+        sim.run(0);
+        assertTrue(sim.getEventPool().getCreatedCount() <= 100);
+        for (int i = 0; i < 100; i++) {
+            sim.enqueueNotification("Cow.Maturity", "c" + i);
+        }
+        sim.run(1);
+        assertEquals(100, sim.getEventPool().getCreatedCount());  // Second batch fully reused
+        slaughter.handleActions(sim.getEventPool().acquire(1, 1, "Cow.Maturity", "c7"), sim);
+        assertEquals("c7", slaughter.getAttribute("last"));
+    }
+}
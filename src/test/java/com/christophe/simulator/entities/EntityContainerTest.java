@@ -0,0 +1,84 @@
+package com.christophe.simulator.entities;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.utils.ExpressionEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityContainerTest {
+
+    @Test
+    void testFifoOrderAndCapacity() {
+        EntityContainer queue = new EntityContainer("s1", "queue", EntityContainer.Kind.QUEUE, "Cow", 2);
+        assertTrue(queue.add("c1"));
+        assertTrue(queue.add("c2"));
+        assertFalse(queue.add("c3"));  // Full
+        assertTrue(queue.isFull());
+        assertEquals("c1", queue.peek());
+        assertEquals("c1", queue.poll());
+        assertEquals("c2", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testMembershipAndRemoval() {
+        EntityContainer herd = new EntityContainer("h1", "cows", EntityContainer.Kind.CAPTURE, "Cow", 0);
+        assertTrue(herd.add("c1"));
+        assertFalse(herd.add("c1"));  // Already a member
+        assertTrue(herd.add("c2"));
+        assertTrue(herd.contains("c2"));
+        assertTrue(herd.remove("c1"));
+        assertFalse(herd.contains("c1"));
+        assertEquals(List.of("c2"), herd.toList());
+        assertEquals(Integer.MAX_VALUE, herd.getMaxCapacity());  // Unbounded
+    }
+
+    @Test
+    void testReverseLinks() {
+        ContainmentIndex index = new ContainmentIndex();
+        EntityContainer herd = new EntityContainer("h1", "cows", EntityContainer.Kind.CAPTURE, "Cow", 0);
+        EntityContainer queue = new EntityContainer("s1", "queue", EntityContainer.Kind.QUEUE, "Cow", 0);
+        herd.add("c1");  // Added before binding
+        herd.bindIndex(index);
+        queue.bindIndex(index);
+        queue.add("c1");
+        assertEquals(List.of(herd, queue), index.getContainersOf("c1"));
+
+        queue.poll();
+        assertEquals(List.of(herd), index.getContainersOf("c1"));
+
+        assertEquals(1, index.removeMember("c1"));
+        assertFalse(herd.contains("c1"));
+        assertFalse(index.isContained("c1"));
+    }
+
+    @Test
+    void testCaptureDeletionRuleCreatesContainer() {
+        Simulator sim = new Simulator();
+        BaseEntity slaughter = new BaseEntity("s1", "Slaughterhouse");
+        slaughter.setAttribute("max_capacity", 1L);
+        slaughter.setAttribute("queue", new ArrayList<>(List.of("c0")));
+        Map<String, Object> rule = new HashMap<>();
+        rule.put("type", "queue");
+        rule.put("container", "queue");
+        rule.put("targetEntityType", "Cow");
+        rule.put("maxCapacity", "$max_capacity");
+        slaughter.setAttribute("capture_deletion", List.of(rule));
+        sim.addEntity(slaughter);
+
+        EntityContainer queue = slaughter.getContainer("queue");
+        assertNotNull(queue);
+        assertEquals(1, queue.getMaxCapacity());
+        assertEquals("c0", queue.peek());  // Existing list carried over
+        Map<String, Object> context = Map.of("attr", slaughter);
+        assertEquals(true, ExpressionEvaluator.evaluate("attr.getAttribute('queue').isFull()", context));
+        assertEquals("c0", ExpressionEvaluator.evaluate("attr.getAttribute('queue').poll()", context));
+    }
+}
@@ -0,0 +1,105 @@
+package com.christophe.simulator.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelReloadServiceTest {
+
+    /** Stub loader where the Cow sheet's growth rate can be "edited". */
+    private static class EditableLoader extends SheetsLoader {
+        final List<String> reads = new ArrayList<>();
+        volatile double cowGrowthRate = 10.0;
+
+        @Override
+        public ModelSheet readSheet(String name) {
+            reads.add(name);
+            ModelSheet sheet = super.readSheet(name);
+            if (!name.equals("Cow")) {
+                return sheet;
+            }
+            Map<String, Object> cow = new HashMap<>(sheet.entities().get("c1"));
+            cow.put("growth_rate", cowGrowthRate);
+            return ModelSheet.entityType("Cow", Map.of("c1", cow));
+        }
+    }
+
+    @Test
+    void testReloadsOnlyChangedSheets() throws Exception {
+        EditableLoader loader = new EditableLoader();
+        Map<String, String> revisions = new HashMap<>(Map.of("Globals", "1", "Farmer", "1", "PayRoll", "1", "Cow", "1", "Slaughterhouse", "1"));
+        try (ModelReloadService service = new ModelReloadService(loader, () -> Map.copyOf(revisions), sim -> sim.run(89))) {
+            ModelReloadService.RunResult first = service.runIfChanged();
+            assertEquals(Set.of("Globals", "Farmer", "PayRoll", "Cow", "Slaughterhouse"), first.reloaded());
+            assertEquals(100.0 + 10.0 * (88 / 30.0), (Double) first.simulator().entities.get("c1").getAttribute("weight"), 1e-9);
+            assertEquals(0, ((List<?>) loader.readSheet("PayRoll").entities().get("p1").get("entries")).size());  // Sheet data untouched by the run
+            loader.reads.clear();
+
+            assertNull(service.runIfChanged());  // Nothing edited
+
+            loader.cowGrowthRate = 20.0;
+            revisions.put("Cow", "2");
+            ModelReloadService.RunResult second = service.runIfChanged();
+            assertEquals(List.of("Cow"), loader.reads);
+            assertEquals(Set.of("Cow"), second.reloaded());
+            assertEquals(Set.of("Globals", "Farmer", "PayRoll", "Slaughterhouse"), second.reused());
+            assertNotSame(first.simulator(), second.simulator());
+            assertEquals(1.0, second.simulator().getAggregates().get("cows_by_state", "Mature"));  // Fresh state per run
+            assertEquals(100.0 + 20.0 * (88 / 30.0), (Double) second.simulator().entities.get("c1").getAttribute("weight"), 1e-9);
+
+            revisions.remove("Farmer");  // Sheet deactivated
+            assertFalse(service.runIfChanged().simulator().entities.containsKey("f1"));
+        }
+    }
+
+    @Test
+    void testWatchesSource() throws Exception {
+        Map<String, String> revisions = new ConcurrentHashMap<>(Map.of("Globals", "1", "Cow", "1"));
+        EditableLoader loader = new EditableLoader();
+        BlockingQueue<ModelReloadService.RunResult> runs = new ArrayBlockingQueue<>(10);
+        try (ModelReloadService service = new ModelReloadService(loader, () -> Map.copyOf(revisions), sim -> sim.run(10))) {
+            service.watch(Duration.ofMillis(20), runs::add);
+            ModelReloadService.RunResult first = runs.poll(30, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertEquals(Set.of("Globals", "Cow"), first.reloaded());
+
+            revisions.put("Cow", "2");
+            ModelReloadService.RunResult second = runs.poll(30, TimeUnit.SECONDS);
+            assertNotNull(second);
+            assertEquals(Set.of("Cow"), second.reloaded());
+            assertEquals(Set.of("Globals"), second.reused());
+        }
+    }
+
+    @Test
+    void testSheetsSourceFollowsLoadedData() throws Exception {
+        EditableLoader loader = new EditableLoader();
+        SheetsModelSource source = new SheetsModelSource(loader);
+        Map<String, String> before = source.revisions();
+        assertEquals(loader.getSheetNames(), List.copyOf(before.keySet()));
+        assertEquals(before, source.revisions());  // Same data, same revisions
+
+        try (ModelReloadService service = new ModelReloadService(loader, source, sim -> sim.run(89))) {
+            assertEquals(Set.copyOf(loader.getSheetNames()), service.runIfChanged().reloaded());
+            assertNull(service.runIfChanged());
+
+            loader.cowGrowthRate = 20.0;
+            Map<String, String> after = source.revisions();
+            before.forEach((name, revision) -> assertEquals(name.equals("Cow"), !revision.equals(after.get(name)), name));
+            ModelReloadService.RunResult edited = service.runIfChanged();
+            assertEquals(Set.of("Cow"), edited.reloaded());
+            assertEquals(100.0 + 20.0 * (88 / 30.0), (Double) edited.simulator().entities.get("c1").getAttribute("weight"), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.christophe.simulator.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineMetricsTest {
+
+    @Test
+    void testHistogramSnapshot() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Histogram.HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(5050, snapshot.total());
+        assertEquals(100, snapshot.max());
+        assertEquals(50.5, snapshot.mean());
+        assertEquals(63, snapshot.p50());  // Upper bound of the [32, 64) bucket
+        assertEquals(100, snapshot.p99());  // Capped at max
+    }
+
+    @Test
+    void testCountersAndSnapshot() {
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.recordEventApplied("Cow.Maturity");
+        metrics.recordEventApplied("Cow.Maturity");
+        metrics.recordEventApplied("Farmer.SalaryDue");
+        metrics.entityAdded("Cow");
+        metrics.entityAdded("Cow");
+        metrics.entityRemoved("Cow");
+        metrics.onEvaluated("$a + 1", 1_000, false);
+        metrics.onEvaluated("$a + 1", 3_000, true);
+        metrics.recordQueueDepth(7);
+        metrics.recordPhase(EngineMetrics.Phase.DERIVED, 2_000);
+        metrics.recordTick();
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.ticks());
+        assertEquals(Map.of("Cow.Maturity", 2L, "Farmer.SalaryDue", 1L), snapshot.eventsAppliedByType());
+        assertEquals(Map.of("Cow", 1L), snapshot.entitiesByType());
+        assertEquals(Map.of("$a + 1", 2L), snapshot.expressionEvaluations());
+        assertEquals(1, snapshot.expressionFailures());
+        assertEquals(3_000, snapshot.expressionLatency().max());
+        assertEquals(7, snapshot.queueDepth());
+        assertEquals(1, snapshot.phases().get(EngineMetrics.Phase.DERIVED).count());
+        assertEquals(0, snapshot.phases().get(EngineMetrics.Phase.STATES).count());
+
+        metrics.reset();
+        assertEquals(0, metrics.getTicks());
+        assertTrue(metrics.getEventsAppliedByType().isEmpty());
+        assertEquals(Map.of("Cow", 1L), metrics.getEntitiesByType());  // Gauge survives reset
+    }
+
+    @Test
+    void testMBeanRegistration() throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.recordTick();
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "Ticks"));
+            assertNotNull(server.getAttribute(name, "PhaseTotalNanos"));
+        } finally {
+            EngineMetrics.unregisterMBean("test");
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
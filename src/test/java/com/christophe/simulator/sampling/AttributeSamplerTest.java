@@ -0,0 +1,106 @@
+package com.christophe.simulator.sampling;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.loader.SheetsLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttributeSamplerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testIntervalSamplingInChunks() throws Exception {
+        Simulator sim = new Simulator();
+        new SheetsLoader().load(sim);
+        Path file = dir.resolve("cows.smp");
+        try (AttributeSampler sampler = sim.addSampler(
+                SamplerConfig.every("cow_growth", "Cow", 10, "weight", "age", "current_state").chunkedBy(30), file)) {
+            sim.run(90);
+            assertEquals(10, sampler.getRowsWritten());  // Ticks 0, 10, ..., 90
+        }
+        ColumnarSampleReader.SampleFile samples = ColumnarSampleReader.read(file);
+        assertEquals("Cow", samples.entityType());
+        assertEquals(4, samples.chunks().size());  // [0,30) [30,60) [60,90) [90,120)
+        assertEquals(30, samples.chunks().get(1).startTick());
+        assertArrayEquals(new long[]{30, 40, 50}, samples.chunks().get(1).ticks());
+        double[] weight = samples.column("weight");
+        assertEquals(100.0, weight[0]);
+        assertEquals(3.0, samples.column("age")[9]);
+        assertTrue(weight[9] > weight[5]);
+        assertTrue(Double.isNaN(samples.column("current_state")[0]));  // Non-numeric
+    }
+
+    @Test
+    void testOnChangeSkipsUnchangedWrites() throws Exception {
+        Simulator sim = new Simulator();
+        BaseEntity payRoll = new BaseEntity("p1", "PayRoll");
+        payRoll.setAttribute("expenses", 0.0);
+        sim.addEntity(payRoll);
+        Path file = dir.resolve("payroll.smp");
+        try (AttributeSampler sampler = sim.addSampler(SamplerConfig.onChange("expenses", "PayRoll", "expenses"), file)) {
+            sim.run(2);  // Initial value sampled once
+            payRoll.setAttribute("expenses", 3000.0);
+            payRoll.setAttribute("expenses", 3000.0);
+            sim.run(5);
+            payRoll.setAttribute("expenses", 3000.0);  // Same value
+            sim.run(8);
+            assertEquals(2, sampler.getRowsWritten());
+        }
+        ColumnarSampleReader.SampleFile samples = ColumnarSampleReader.read(file);
+        assertArrayEquals(new double[]{0.0, 3000.0}, samples.column("expenses"));
+        assertEquals(2, samples.chunks().size());  // Buffered rows are flushed at the end of each run
+        assertEquals("p1", samples.chunks().get(1).entityIds()[0]);
+        assertEquals(3, samples.chunks().get(1).ticks()[0]);
+    }
+
+    @Test
+    void testDownsamplingAveragesWindows() throws Exception {
+        Simulator sim = new Simulator();
+        for (String id : new String[]{"c1", "c2"}) {
+            BaseEntity cow = new BaseEntity(id, "Cow");
+            cow.setAttribute("derived_attributes", Map.of("weight", "$current_tick * 2"));
+            sim.addEntity(cow);
+        }
+        Path file = dir.resolve("downsampled.smp");
+        try (AttributeSampler sampler = sim.addSampler(
+                SamplerConfig.every("weights", "Cow", 1, "weight").downsampledTo(10), file)) {
+            sim.run(19);
+            assertEquals(4, sampler.getRowsWritten());  // 2 cows x 2 windows
+        }
+        ColumnarSampleReader.Chunk chunk = ColumnarSampleReader.read(file).chunks().get(0);
+        assertArrayEquals(new long[]{0, 0, 10, 10}, chunk.ticks());
+        assertEquals(9.0, chunk.values()[0][0]);  // Mean of 0, 2, ..., 18
+        assertEquals(29.0, chunk.values()[0][2]);
+    }
+
+    @Test
+    void testOpenWindowCarriesOverToNextRun() throws Exception {
+        Simulator sim = new Simulator();
+        BaseEntity cow = new BaseEntity("c1", "Cow");
+        cow.setAttribute("derived_attributes", Map.of("weight", "$current_tick * 2"));
+        sim.addEntity(cow);
+        Path file = dir.resolve("carried.smp");
+        try (AttributeSampler sampler = sim.addSampler(
+                SamplerConfig.every("weights", "Cow", 1, "weight").chunkedBy(100).downsampledTo(10), file)) {
+            sim.run(14);
+            assertEquals(1, sampler.getRowsWritten());  // Window 10-19 still open
+            sim.run(19);
+            assertEquals(2, sampler.getRowsWritten());
+        }
+        List<ColumnarSampleReader.Chunk> chunks = ColumnarSampleReader.read(file).chunks();
+        assertEquals(2, chunks.size());  // One chunk written in two parts
+        assertArrayEquals(new long[]{10}, chunks.get(1).ticks());
+        assertEquals(29.0, chunks.get(1).values()[0][0]);  // Mean over the whole window, across both runs
+        assertThrows(IllegalArgumentException.class,
+                () -> SamplerConfig.every("weights", "Cow", 1, "weight").chunkedBy(100).downsampledTo(30));
+    }
+}
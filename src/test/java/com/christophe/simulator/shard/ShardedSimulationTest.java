@@ -0,0 +1,93 @@
+package com.christophe.simulator.shard;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.loader.SheetsLoader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedSimulationTest {
+
+    @Test
+    void testPartitioners() {
+        ShardPartitioner byType = ShardPartitioner.parse("type:Cow=1");
+        assertEquals(1, byType.shardOf("c1", "Cow", 2));
+        assertEquals(0, byType.shardOf("f1", "Farmer", 2));  // Unlisted types go to shard 0
+        ShardPartitioner byHash = ShardPartitioner.byIdHash();
+        int shard = byHash.shardOf("c1", "Cow", 3);
+        assertTrue(shard >= 0 && shard < 3);
+        assertEquals(shard, byHash.shardOf("c1", "Other", 3));
+        assertThrows(IllegalArgumentException.class, () -> ShardPartitioner.parse("round-robin"));
+    }
+
+    @Test
+    void testIdleShardDoesNotForceEveryTick() {
+        assertEquals(50, ShardCoordinator.nextTick(10, new long[]{Long.MAX_VALUE, 50}));  // Shard 0 idle
+        assertEquals(12, ShardCoordinator.nextTick(10, new long[]{12, 50}));
+        assertEquals(11, ShardCoordinator.nextTick(10, new long[]{Long.MAX_VALUE, Long.MAX_VALUE}));  // All idle
+    }
+
+    @Test
+    void testCrossShardNotificationsMatchSingleProcess() throws Exception {
+        Simulator single = new Simulator();
+        new SheetsLoader().load(single);
+        single.run(95);
+
+        ShardedRunResult sharded = ShardedSimulation.run(2, "type:Cow=0,Slaughterhouse=1,Farmer=1,PayRoll=1", 95);
+        Map<String, Object> cow = sharded.entities().get("c1");
+        Map<String, Object> slaughterhouse = sharded.entities().get("s1");
+        assertEquals("Mature", cow.get("current_state"));
+        assertEquals(List.of("c1"), slaughterhouse.get("queue"));  // Cow.Maturity crossed from shard 0 to 1
+        assertEquals(single.entities.get("s1").getContainer("queue").toList(), slaughterhouse.get("queue"));
+        assertEquals(single.entities.get("c1").getAttribute("weight"), cow.get("weight"));
+        assertTrue(sharded.notificationsRouted() >= 1);
+        assertEquals(1, sharded.aggregates().get("cows_by_state").members());
+        assertEquals((Double) cow.get("weight"), sharded.aggregates().get("herd_weight").sum());
+    }
+
+    @Test
+    void testConflictingGlobalWritesFailTheRun() throws Exception {
+        assertEquals(1.5, runPricing(1.5, 1.5).globals().get("price"));  // Agreeing writes merge
+        IOException conflict = assertThrows(IOException.class, () -> runPricing(1.5, 2.5));
+        assertTrue(conflict.getMessage().contains("global price at tick 5"), conflict.getMessage());
+    }
+
+    // Two in-process shards whose only entity sets the same global at tick 5
+    private static ShardedRunResult runPricing(double price0, double price1) throws Exception {
+        try (ShardCoordinator coordinator = new ShardCoordinator(2, 10)) {
+            List<Thread> shards = new ArrayList<>();
+            double[] prices = {price0, price1};
+            for (int shard = 0; shard < 2; shard++) {
+                Simulator sim = new Simulator();
+                BaseEntity market = new BaseEntity("m" + shard, "Market");
+                market.setAttribute("actions", List.of(Map.of("actionName", "Price", "trigger", "tick",
+                        "condition", "$current_tick == 5", "effect", "simulator.globals.put('price', " + prices[shard] + ")")));
+                sim.addEntity(market);
+                ShardWorker worker = new ShardWorker(sim, shard, "127.0.0.1", coordinator.getPort());
+                Thread thread = new Thread(() -> {
+                    try (worker) {
+                        sim.run(10);
+                        worker.finish();
+                    } catch (Exception e) {
+                        // The coordinator reports the failure
+                    }
+                });
+                thread.start();
+                shards.add(thread);
+            }
+            try {
+                return coordinator.coordinate();
+            } finally {
+                for (Thread thread : shards) {
+                    thread.join(30_000);
+                }
+            }
+        }
+    }
+}
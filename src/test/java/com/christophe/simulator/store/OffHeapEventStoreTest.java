@@ -0,0 +1,100 @@
+package com.christophe.simulator.store;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.entities.CompactEvent;
+import com.christophe.simulator.entities.EventPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapEventStoreTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void testRoundTripAcrossWindowAndSpill() throws Exception {
+        EventPool pool = new EventPool();
+        try (OffHeapEventStore store = new OffHeapEventStore(spillDir, 10, 2)) {
+            for (long tick = 5; tick < 500; tick += 5) {
+                CompactEvent event = pool.acquire(tick, 1, "Farmer.SalaryDue", "f1").addValue(tick * 100.0);
+                store.add(event);
+                pool.release(event);
+            }
+            for (int i = 0; i < 100; i++) {
+                CompactEvent event = pool.acquire(401, 1, "Cow.Maturity", "c" + i);
+                store.add(event);  // Overflows the spill buffer of a far bucket
+                pool.release(event);
+            }
+            assertEquals(199, store.size());
+            assertEquals(5, store.nextEventTime());
+            assertEquals(1, listSpillFiles());  // Buckets beyond the 2-bucket window, flushed once full
+
+            List<CompactEvent> drained = new ArrayList<>();
+            assertEquals(1, store.drainUpTo(9, pool, drained::add));  // Bucket [0, 10)
+            assertEquals(5, drained.get(0).getTime());
+            assertEquals("f1", drained.get(0).getSourceEntityId());
+            assertEquals(500.0, drained.get(0).getValue(0));
+            assertEquals(10, store.nextEventTime());
+
+            drained.clear();
+            store.drainUpTo(499, pool, drained::add);
+            assertEquals(198, drained.size());
+            assertEquals(495, drained.get(drained.size() - 1).getTime());
+            assertEquals("Farmer.SalaryDue", drained.get(drained.size() - 1).getType());
+            assertTrue(store.isEmpty());
+            assertEquals(Long.MAX_VALUE, store.nextEventTime());
+            assertEquals(0, listSpillFiles());  // Drained files deleted
+        }
+    }
+
+    @Test
+    void testCloseReleasesSourcesOfPendingEvents() throws Exception {
+        EventPool pool = new EventPool();
+        OffHeapEventStore store = new OffHeapEventStore(spillDir, 10, 2);
+        for (long tick = 5; tick < 500; tick += 5) {
+            CompactEvent event = pool.acquire(tick, 1, "Cow.Check", "c1");
+            store.add(event);  // In-window segments and unflushed spill tails
+            pool.release(event);
+        }
+        for (int i = 0; i < 100; i++) {
+            CompactEvent event = pool.acquire(401, 1, "Cow.Check", "c1");
+            store.add(event);  // A flushed spill file
+            pool.release(event);
+        }
+        assertEquals(1, listSpillFiles());
+        pool.retireEntity("c1");  // Destroyed while its notifications are still pending
+        assertNotEquals(-1, pool.getEntityIds().find("c1"));
+        store.close();
+        assertEquals(-1, pool.getEntityIds().find("c1"));  // Every reference released, slot freed
+        assertEquals(0, listSpillFiles());
+    }
+
+    @Test
+    void testSimulatorRoutesFutureNotificationsOffHeap() throws Exception {
+        Simulator sim = new Simulator();
+        try (OffHeapEventStore store = sim.enableOffHeapEventStore(spillDir, 30, 1)) {
+            for (long tick = 30; tick <= 360; tick += 30) {
+                sim.scheduleNotification(tick, "Farmer.SalaryDue", "f1");
+            }
+            assertEquals(12, store.size());
+            assertEquals(12, sim.getPendingEventCount());
+            sim.run(360);
+            assertEquals(12L, sim.getMetrics().getEventsAppliedByType().get("Farmer.SalaryDue"));
+            assertEquals(0, sim.getPendingEventCount());
+        }
+    }
+
+    private long listSpillFiles() throws Exception {
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return files.count();
+        }
+    }
+}
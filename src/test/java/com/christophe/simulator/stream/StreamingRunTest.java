@@ -0,0 +1,127 @@
+package com.christophe.simulator.stream;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.entities.BaseEntity;
+import com.christophe.simulator.loader.SheetsLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingRunTest {
+
+    /** Collects deltas, requesting one at a time unless told otherwise. */
+    private static class Collector implements Flow.Subscriber<TickDelta> {
+        final List<TickDelta> deltas = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final long initialRequest;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        Collector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(TickDelta delta) {
+            deltas.add(delta);
+            if (initialRequest > 0) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    @Test
+    void testPacedRunDeliversEveryTickInOrder() throws Exception {
+        Simulator sim = new Simulator();
+        new SheetsLoader().load(sim);
+        Collector collector = new Collector(1);
+        StreamingRun run = sim.stream(95, StreamingRun.Mode.PACED);
+        run.subscribe(collector);
+        run.start();
+        assertTrue(collector.done.await(30, TimeUnit.SECONDS));
+        assertNull(collector.error);
+        assertEquals(96, collector.deltas.size());  // Ticks 0..95, one each
+        for (int i = 0; i < collector.deltas.size(); i++) {
+            assertEquals(i, collector.deltas.get(i).tick());
+            assertFalse(collector.deltas.get(i).isConflated());
+        }
+        assertTrue(collector.deltas.stream().flatMap(d -> d.transitions().stream())
+                .anyMatch(t -> t.entityId().equals("c1") && t.toState().equals("Mature")));
+        assertTrue(collector.deltas.stream().flatMap(d -> d.events().stream())
+                .anyMatch(e -> e.type().equals("Cow.Maturity")));
+        assertNotNull(collector.deltas.get(5).attributes().get("c1").get("age"));
+    }
+
+    @Test
+    void testPauseResumeAndStop() throws Exception {
+        Simulator sim = new Simulator();
+        new SheetsLoader().load(sim);
+        Collector collector = new Collector(Long.MAX_VALUE);
+        StreamingRun run = sim.stream(500, StreamingRun.Mode.PACED);
+        run.subscribe(collector);
+        run.pause();
+        run.start();
+        Thread.sleep(200);
+        assertEquals(1, collector.deltas.size());  // Held after tick 0
+        assertEquals(0, sim.getCurrentTick());
+        run.resume();
+        while (collector.deltas.size() < 20) {
+            Thread.sleep(5);
+        }
+        run.stop();
+        assertTrue(run.awaitCompletion(30, TimeUnit.SECONDS));
+        assertTrue(collector.done.await(30, TimeUnit.SECONDS));
+        long lastTick = collector.deltas.get(collector.deltas.size() - 1).tick();
+        assertTrue(lastTick < 500);
+        assertEquals(501, sim.getCurrentTick());
+    }
+
+    @Test
+    void testSlowSubscriberGetsConflatedDelta() throws Exception {
+        Simulator sim = new Simulator();
+        BaseEntity cow = new BaseEntity("c1", "Cow");
+        cow.setAttribute("derived_attributes", Map.of("weight", "$current_tick * 2"));
+        sim.addEntity(cow);
+        Collector collector = new Collector(0);  // No demand yet
+        StreamingRun run = sim.stream(50, StreamingRun.Mode.CONFLATE);
+        run.subscribe(collector);
+        run.start();
+        assertTrue(run.awaitCompletion(30, TimeUnit.SECONDS));  // The engine did not wait
+        assertTrue(collector.deltas.isEmpty());
+
+        collector.subscription.request(10);
+        assertTrue(collector.done.await(30, TimeUnit.SECONDS));
+        assertEquals(1, collector.deltas.size());
+        TickDelta delta = collector.deltas.get(0);
+        assertTrue(delta.isConflated());
+        assertEquals(0, delta.fromTick());
+        assertEquals(50, delta.tick());
+        assertEquals(100.0, ((Number) delta.attributes().get("c1").get("weight")).doubleValue());
+    }
+}
@@ -0,0 +1,54 @@
+package com.christophe.simulator.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickDeltaTest {
+
+    @Test
+    void testLongStallStaysBounded() {
+        TickDelta pending = tick(0, List.of(), List.of("c0"), List.of());
+        for (long t = 1; t <= 10_000; t++) {
+            // Each tick a calf is born and the previous one slaughtered; the herd leader flips state
+            TickDelta next = tick(t, List.of(new TickDelta.Transition("leader", state(t - 1), state(t), t)),
+                    List.of("c" + t), List.of("c" + (t - 1)));
+            pending = pending.merge(next);
+        }
+        assertEquals(0, pending.fromTick());
+        assertEquals(10_000, pending.tick());
+        assertEquals(List.of("c10000"), pending.added());
+        assertEquals(List.of(), pending.destroyed());  // Every destroyed calf was born within the window
+        assertEquals(List.of(new TickDelta.Transition("leader", "A", "A", 10_000)), pending.transitions());
+        assertEquals(Set.of("c10000"), pending.attributes().keySet());
+        assertEquals(TickDelta.MAX_EVENTS, pending.events().size());
+        assertEquals(10_001 - TickDelta.MAX_EVENTS, pending.droppedEvents());
+    }
+
+    @Test
+    void testMergeKeepsNetEffectPerEntity() {
+        TickDelta first = tick(1, List.of(new TickDelta.Transition("c1", "Calf", "Mature", 1)), List.of("n1"), List.of("c1"));
+        TickDelta second = tick(2, List.of(new TickDelta.Transition("c2", "Calf", "Mature", 2)), List.of("c1", "n2"), List.of("n1"));
+        TickDelta merged = first.merge(second);
+        assertEquals(List.of("c1", "n2"), merged.added());  // c1 was replaced; n1 came and went
+        assertEquals(List.of("c1"), merged.destroyed());
+        assertEquals(List.of(new TickDelta.Transition("c1", "Calf", "Mature", 1),
+                new TickDelta.Transition("c2", "Calf", "Mature", 2)), merged.transitions());
+        assertFalse(merged.attributes().containsKey("n1"));
+        assertTrue(merged.isConflated());
+    }
+
+    private static String state(long tick) {
+        return tick % 2 == 0 ? "A" : "B";
+    }
+
+    private static TickDelta tick(long tick, List<TickDelta.Transition> transitions, List<String> added, List<String> destroyed) {
+        Map<String, Map<String, Object>> attributes = Map.of(added.isEmpty() ? "none" : added.get(0), Map.of("tick", tick));
+        return new TickDelta(tick, tick, attributes, transitions,
+                List.of(new TickDelta.AppliedEvent("Clock.Tick", null, tick)), 0, added, destroyed);
+    }
+}
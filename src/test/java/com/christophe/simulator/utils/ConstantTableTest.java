@@ -0,0 +1,100 @@
+package com.christophe.simulator.utils;
+
+import org.graalvm.polyglot.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantTableTest {
+
+    @AfterEach
+    void tearDown() {
+        ExpressionEvaluator.enter(null);
+    }
+
+    private static void install(ConstantTable table) {
+        EvaluationScope scope = new EvaluationScope();
+        scope.setConstants(table);
+        ExpressionEvaluator.enter(scope);
+    }
+
+    @Test
+    void testInlinesAndFoldsFractionalConstants() {
+        ConstantTable table = ConstantTable.freeze(Map.of("tax_rate", 0.2, "enabled", true, "herd_size", 100L));
+        try (Context context = Context.create("js")) {
+            ExpressionSpecializer.Specialized s = table.specialize("$revenue - $expenses * (1 + $tax_rate)", context);
+            assertEquals("revenue - expenses * (1.2)", s.source());
+            assertEquals(Set.of("tax_rate"), s.inlined());
+            assertEquals("(0.4)", table.specialize("$tax_rate * 2", context).source());
+            assertEquals("herd_size / 2", table.specialize("$herd_size / 2", context).source());  // Long stays bound
+            assertEquals("true && x", table.specialize("$enabled && $x", context).source());
+        }
+    }
+
+    @Test
+    void testEvaluationMatchesUnspecialized() {
+        Map<String, Object> globals = Map.of("tax_rate", 0.2, "herd_size", 100L);
+        Map<String, Object> attrs = Map.of("revenue", 15000.0, "expenses", 9000.0);
+        String[] expressions = {"$revenue - $expenses * (1 + $tax_rate)", "$herd_size / 4", "(2 * 3) + $expenses", "$tax_rate * 5"};
+        Map<String, Object> plain = new HashMap<>(globals);
+        plain.putAll(attrs);
+        Object[] expected = new Object[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            expected[i] = ExpressionEvaluator.evaluate(expressions[i], plain);
+        }
+        ConstantTable table = ConstantTable.freeze(globals);
+        install(table);
+        for (int i = 0; i < expressions.length; i++) {
+            assertEquals(expected[i], ExpressionEvaluator.evaluate(expressions[i], attrs), expressions[i]);
+        }
+        assertEquals(expressions.length, table.getSpecializedCount());
+    }
+
+    @Test
+    void testQuotedConstantNameIsNotInlined() {
+        ConstantTable table = ConstantTable.freeze(Map.of("tax_rate", 0.2));
+        try (Context context = Context.create("js")) {
+            assertEquals("'$tax_rate' + (0.2)", table.specialize("'$tax_rate' + $tax_rate", context).source());
+            assertEquals("\"it's $tax_rate\"", table.specialize("\"it's $tax_rate\"", context).source());
+        }
+        install(table);
+        assertEquals("$tax_rate=0.2", ExpressionEvaluator.evaluate("'$tax_rate=' + $tax_rate", Map.of()));
+    }
+
+    @Test
+    void testQuotedArithmeticIsNotFolded() {
+        ConstantTable table = ConstantTable.freeze(Map.of("tax_rate", 0.2));
+        try (Context context = Context.create("js")) {
+            assertEquals("'(1+2)' + (1.2)", table.specialize("'(1+2)' + (1 + $tax_rate)", context).source());
+            assertEquals("'1 + 2'", table.specialize("'1 + 2'", context).source());
+        }
+        install(table);
+        assertEquals("(1+2)", ExpressionEvaluator.evaluate("'(1+2)'", Map.of()));
+    }
+
+    @Test
+    void testNullGlobalIsBoundButNotInlined() {
+        Map<String, Object> globals = new HashMap<>();
+        globals.put("tax_rate", 0.2);
+        globals.put("blank", null);
+        ConstantTable table = ConstantTable.freeze(globals);
+        assertTrue(table.isConstant("blank"));
+        assertEquals(Set.of("tax_rate"), table.inlinableNames());
+        install(table);
+        assertEquals(true, ExpressionEvaluator.evaluate("$blank == null", Map.of()));
+    }
+
+    @Test
+    void testContextEntryShadowsConstant() {
+        install(ConstantTable.freeze(Map.of("tax_rate", 0.2, "herd_size", 100L)));
+        assertEquals(0.5, ExpressionEvaluator.evaluate("$tax_rate", Map.of("tax_rate", 0.5)));
+        assertEquals(0.2, ExpressionEvaluator.evaluate("$tax_rate", Map.of()));
+        assertEquals(5.0, ExpressionEvaluator.evaluate("$herd_size", Map.of("herd_size", 5.0)));
+        assertEquals(100L, ExpressionEvaluator.evaluate("$herd_size", Map.of()));  // Rebound after shadowing
+    }
+}
@@ -0,0 +1,34 @@
+package com.christophe.simulator.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionAccessAnalyzerTest {
+
+    @Test
+    void testLocalAccessIsNotGlobal() {
+        assertFalse(ExpressionAccessAnalyzer.analyze(
+                "attr.setAttribute('weight', $weight + attr.getAttribute('gain'))").global());
+        assertFalse(ExpressionAccessAnalyzer.analyze(
+                "attr.getAttribute('queue').add($notified_entity_id)").global());
+        assertFalse(ExpressionAccessAnalyzer.analyze("attr.setAttribute(name, 1)").global());
+    }
+
+    @Test
+    void testGlobalReach() {
+        assertTrue(ExpressionAccessAnalyzer.analyze("simulator.destroyEntity($notified_entity_id)").global());
+        assertTrue(ExpressionAccessAnalyzer.analyze("Java.type('java.lang.System').exit(0)").global());
+        assertTrue(ExpressionAccessAnalyzer.analyze("aggregates.get('herd').count() > 10").global());
+        assertTrue(ExpressionAccessAnalyzer.analyze("attr.getContainedIn().size() > 0").global());
+    }
+
+    @Test
+    void testUnion() {
+        ExpressionAccessAnalyzer.AccessSet union = ExpressionAccessAnalyzer.analyze("$a > 0")
+                .union(ExpressionAccessAnalyzer.analyze("simulator.enqueueEvent(null)"));
+        assertTrue(union.global());
+        assertFalse(ExpressionAccessAnalyzer.analyze("$a > 0").union(ExpressionAccessAnalyzer.AccessSet.NONE).global());
+        assertSame(ExpressionAccessAnalyzer.AccessSet.NONE, ExpressionAccessAnalyzer.analyze(null));
+    }
+}
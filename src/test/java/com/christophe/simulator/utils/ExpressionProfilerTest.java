@@ -0,0 +1,81 @@
+package com.christophe.simulator.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionProfilerTest {
+
+    @AfterEach
+    void tearDown() {
+        ExpressionEvaluator.enter(null);
+    }
+
+    @Test
+    void testRankedByTotalTime() {
+        ExpressionProfiler profiler = new ExpressionProfiler();
+        ExpressionOrigin cowDerived = ExpressionOrigin.ofEntity("Cow", "DerivedAttributes");
+        profiler.record("$a + 1", cowDerived, 100, false);
+        profiler.record("$a + 1", cowDerived, 300, true);
+        profiler.record("$b * 2", ExpressionOrigin.ofEntity("PayRoll", "Actions"), 1_000, false);
+
+        List<ExpressionProfiler.Entry> ranked = profiler.ranked();
+        assertEquals("$b * 2", ranked.get(0).expression());
+        ExpressionProfiler.Entry second = ranked.get(1);
+        assertEquals(2, second.calls());
+        assertEquals(400, second.totalNanos());
+        assertEquals(300, second.maxNanos());
+        assertEquals(1, second.failures());
+        assertEquals(200.0, second.meanNanos());
+        assertEquals(List.of(new ExpressionOrigin("Cow.xlsx", "DerivedAttributes", "Cow")), second.origins());
+    }
+
+    @Test
+    void testEvaluatorRecordsWhenEnabled() {
+        ExpressionProfiler profiler = new ExpressionProfiler();
+        ExpressionOrigin origin = ExpressionOrigin.ofEntity("Cow", "States");
+        ExpressionEvaluator.evaluate("$a > 1", Map.of("a", 2.0), origin);  // Not profiled yet
+        EvaluationScope scope = new EvaluationScope();
+        scope.setProfiler(profiler);
+        ExpressionEvaluator.enter(scope);
+        ExpressionEvaluator.evaluate("$a > 1", Map.of("a", 2.0), origin);
+        assertThrows(RuntimeException.class, () -> ExpressionEvaluator.evaluate("$missing + 1", Map.of(), origin));
+
+        Map<String, ExpressionProfiler.Entry> byExpr = new HashMap<>();
+        profiler.ranked().forEach(e -> byExpr.put(e.expression(), e));
+        assertEquals(1, byExpr.get("$a > 1").calls());
+        assertEquals(1, byExpr.get("$missing + 1").failures());
+    }
+
+    @Test
+    void testWriteReport() throws Exception {
+        ExpressionProfiler profiler = new ExpressionProfiler();
+        profiler.record("$revenue - $expenses", ExpressionOrigin.ofEntity("PayRoll", "DerivedAttributes"), 2_000_000, false);
+        StringWriter out = new StringWriter();
+        profiler.writeReport(out);
+        String[] lines = out.toString().split("\\R");
+        assertTrue(lines[0].startsWith("rank\tcalls"));
+        assertTrue(lines[1].startsWith("1\t1\t2.000\t"));
+        assertTrue(lines[1].contains("PayRoll.xlsx!DerivedAttributes (PayRoll)"));
+        assertTrue(lines[1].endsWith("$revenue - $expenses"));
+    }
+
+    @Test
+    void testReportEscapesSeparators() throws Exception {
+        ExpressionProfiler profiler = new ExpressionProfiler();
+        profiler.record("$a\t+\r\n$b + '\\'", null, 1_000, false);
+        StringWriter out = new StringWriter();
+        profiler.writeReport(out);
+        String[] lines = out.toString().split("\\R");
+        assertEquals(2, lines.length);
+        String[] columns = lines[1].split("\t", -1);
+        assertEquals(8, columns.length);
+        assertEquals("$a\\t+\\r\\n$b + '\\\\'", columns[7]);
+    }
+}
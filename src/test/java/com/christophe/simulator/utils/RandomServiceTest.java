@@ -0,0 +1,99 @@
+package com.christophe.simulator.utils;
+
+import com.christophe.simulator.Simulator;
+import com.christophe.simulator.entities.BaseEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomServiceTest {
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void testEntityStreamsIndependentOfCreationOrder() {
+        RandomService first = new RandomService(42);
+        RandomService second = new RandomService(42);
+        double a1 = first.forEntity("c1").nextDouble();
+        double b1 = first.forEntity("c2").nextDouble();
+        double b2 = second.forEntity("c2").nextDouble();  // Reverse order
+        double a2 = second.forEntity("c1").nextDouble();
+        assertEquals(a1, a2);
+        assertEquals(b1, b2);
+        assertNotEquals(a1, b1);
+        assertSame(first.forEntity("c1"), first.forEntity("c1"));
+        assertNotEquals(a1, new RandomService(43).forEntity("c1").nextDouble());
+    }
+
+    @Test
+    void testWorkerStreamsReproducible() {
+        RandomService service = new RandomService(7);
+        assertEquals(service.forWorker(3).nextDouble(), new RandomService(7).forWorker(3).nextDouble());
+        assertNotEquals(service.forWorker(0).nextDouble(), service.forWorker(1).nextDouble());
+    }
+
+    @Test
+    void testUniformAndTriangularMeans() {
+        RandomStream stream = new RandomStream(1);
+        double uniformSum = 0;
+        double triangularSum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double u = stream.uniform(2, 4);
+            assertTrue(u >= 2 && u < 4);
+            uniformSum += u;
+            double t = stream.triangular(0, 1, 5);
+            assertTrue(t >= 0 && t <= 5);
+            triangularSum += t;
+        }
+        assertEquals(3.0, uniformSum / SAMPLES, 0.01);
+        assertEquals(2.0, triangularSum / SAMPLES, 0.02);  // (min + mode + max) / 3
+    }
+
+    @Test
+    void testNormalMoments() {
+        RandomStream stream = new RandomStream(2);
+        double sum = 0;
+        double sumSq = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = stream.normal(10, 2);
+            sum += x;
+            sumSq += x * x;
+        }
+        double mean = sum / SAMPLES;
+        assertEquals(10.0, mean, 0.02);
+        assertEquals(4.0, sumSq / SAMPLES - mean * mean, 0.05);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.5, 4, 30, 1000})
+    void testPoissonMoments(double lambda) {
+        RandomStream stream = new RandomStream(3);
+        double sum = 0;
+        double sumSq = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long k = stream.poisson(lambda);
+            assertTrue(k >= 0);
+            sum += k;
+            sumSq += (double) k * k;
+        }
+        double mean = sum / SAMPLES;
+        assertEquals(lambda, mean, 0.01 * lambda + 0.01);
+        assertEquals(lambda, sumSq / SAMPLES - mean * mean, 0.03 * lambda + 0.02);  // Variance = mean
+    }
+
+    @Test
+    void testExpressionsReachEntityStream() {
+        Simulator sim = new Simulator();
+        sim.setRandomSeed(99);
+        BaseEntity cow = new BaseEntity("c1", "Cow");
+        sim.addEntity(cow);
+        Map<String, Object> context = new HashMap<>();
+        cow.bindRandom(context);
+        Object drawn = ExpressionEvaluator.evaluate("$random.normal(100, 5)", context);
+        assertEquals(new RandomService(99).forEntity("c1").normal(100, 5), drawn);
+    }
+}